@@ -0,0 +1,41 @@
+package ru.kodrul.bot.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.kodrul.bot.parser.CommandParser;
+import ru.kodrul.bot.pojo.CommandArguments;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandParserBenchmark {
+
+    private static final String SCHEDULE_COMMAND =
+            "/createschedule backend \"пн,ср,пт 09:30\" Всем привет! Дейли через 5 минут https://example.com/daily.png";
+    private static final String HIDDEN_SCHEDULE_COMMAND =
+            "/createschedulehidden -1001234567890 42 backend \"0 30 9 * * MON-FRI\" \"Дейли через 5 минут\" https://example.com/daily.png";
+
+    private final CommandParser commandParser = new CommandParser();
+
+    @Benchmark
+    public CommandArguments parseCommandWithQuotes() {
+        return commandParser.parseCommandWithQuotes(SCHEDULE_COMMAND);
+    }
+
+    @Benchmark
+    public CommandArguments parseCommandWithChatIdAndQuotes() {
+        return commandParser.parseCommandWithChatIdAndQuotes(HIDDEN_SCHEDULE_COMMAND);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.kodrul.bot.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.kodrul.bot.pojo.CronParseResult;
+import ru.kodrul.bot.services.CronService;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CronServiceBenchmark {
+
+    @Param({"09:00", "пн,ср,пт 09:00", "ежемесячно 1,15 10:30", "0 0 9 * * ?"})
+    private String schedule;
+
+    private CronService cronService;
+    private String cronExpression;
+    private LocalDateTime matchingMinute;
+    private LocalDateTime otherMinute;
+
+    @Setup
+    public void setUp() {
+        cronService = new CronService();
+        cronExpression = cronService.parseCronExpression(schedule).getCronExpression();
+        // Проверки расписания выполняются каждую минуту, совпадение - редкий случай
+        matchingMinute = cronService.nextExecution(cronExpression, LocalDateTime.of(2026, 1, 1, 0, 0));
+        otherMinute = matchingMinute.plusMinutes(7);
+    }
+
+    @Benchmark
+    public CronParseResult parseCronExpression() {
+        return cronService.parseCronExpression(schedule);
+    }
+
+    @Benchmark
+    public boolean shouldExecuteMatch() {
+        return cronService.shouldExecute(cronExpression, matchingMinute);
+    }
+
+    @Benchmark
+    public boolean shouldExecuteMiss() {
+        return cronService.shouldExecute(cronExpression, otherMinute);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.kodrul.bot.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.kodrul.bot.utils.EscapeHelper;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapeHelperBenchmark {
+
+    @Param({"plain", "username", "mixed", "reserved"})
+    private String kind;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = switch (kind) {
+            case "plain" -> "Иван Степанов";
+            case "username" -> "@ivan_stepanov_17";
+            case "mixed" -> "Группа back-end (v2.1): [релиз] *сегодня* в 18:00! #deploy";
+            default -> "_*[]()~`>#+-=|{}.!_*[]()~`>#+-=|{}.!";
+        };
+    }
+
+    @Benchmark
+    public String escape() {
+        return EscapeHelper.escapeMarkdownV2(text);
+    }
+
+    @Benchmark
+    public String escapeIntoBuilder() {
+        return EscapeHelper.escapeMarkdownV2(new StringBuilder(64).append("• "), text).toString();
+    }
+
+    @Benchmark
+    public String legacyReplaceChain() {
+        return LegacyEscapeHelper.escapeMarkdownV2(text);
+    }
+}
@@ -0,0 +1,72 @@
+package ru.kodrul.bot.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.kodrul.bot.pojo.GroupSnapshot;
+import ru.kodrul.bot.pojo.GroupSummary;
+import ru.kodrul.bot.utils.GroupFormatHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Форматирование ответов по группам: упоминание участников (/tag и запланированные посты),
+ * карточка группы (/listgroups) и распределение по командам (/distributeteams).
+ * Измеряются статические методы {@link GroupFormatHelper}, которыми пользуются сервисы: они не зависят от бинов
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupFormattingBenchmark {
+
+    @Param({"10", "100"})
+    private int memberCount;
+
+    @Param({"2", "4"})
+    private int teamCount;
+
+    private GroupSnapshot group;
+    private GroupSummary summary;
+
+    @Setup
+    public void setUp() {
+        List<GroupSnapshot.Member> members = new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            // Каждый пятый участник без username - отображается по имени
+            members.add(i % 5 == 0
+                    ? new GroupSnapshot.Member(1_000_000L + i, null, "Имя" + i + " Фамилия_" + i)
+                    : new GroupSnapshot.Member(1_000_000L + i, "user_" + i, "@user_" + i));
+        }
+        group = new GroupSnapshot(1L, -1001234567890L, "backend", "Команда back-end разработки", members);
+        summary = new GroupSummary(1L, "backend", "Команда back-end разработки", memberCount, 1);
+    }
+
+    @Benchmark
+    public String tagUsersMessage() {
+        return GroupFormatHelper.appendMentions(new StringBuilder(), group.getMembers()).toString();
+    }
+
+    @Benchmark
+    public String formatGroupInfo() {
+        return GroupFormatHelper.formatGroupInfo(summary.getId(), summary.getName(), summary.getDescription(),
+                summary.getMemberCount());
+    }
+
+    @Benchmark
+    public String formatTeams() {
+        return GroupFormatHelper.formatTeams(group.getName(), group.getMembers(), teamCount);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.kodrul.bot.benchmarks;
+
+/**
+ * Прежняя реализация экранирования MarkdownV2 цепочкой replace. Оставлена как точка отсчёта для {@link EscapeHelperBenchmark}
+ */
+final class LegacyEscapeHelper {
+
+    private LegacyEscapeHelper() {
+    }
+
+    static String escapeMarkdownV2(String text) {
+        if (text == null) return "";
+
+        return text.replace("_", "\\_")
+                .replace("*", "\\*")
+                .replace("[", "\\[")
+                .replace("]", "\\]")
+                .replace("(", "\\(")
+                .replace(")", "\\)")
+                .replace("~", "\\~")
+                .replace("`", "\\`")
+                .replace(">", "\\>")
+                .replace("#", "\\#")
+                .replace("+", "\\+")
+                .replace("-", "\\-")
+                .replace("=", "\\=")
+                .replace("|", "\\|")
+                .replace("{", "\\{")
+                .replace("}", "\\}")
+                .replace(".", "\\.")
+                .replace("!", "\\!");
+    }
+}
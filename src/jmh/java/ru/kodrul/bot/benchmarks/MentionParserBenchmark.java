@@ -0,0 +1,66 @@
+package ru.kodrul.bot.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.telegram.telegrambots.meta.api.objects.MessageEntity;
+import org.telegram.telegrambots.meta.api.objects.User;
+import ru.kodrul.bot.parser.MentionParser;
+import ru.kodrul.bot.pojo.ParsedMention;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MentionParserBenchmark {
+
+    @Param({"3", "30"})
+    private int mentionCount;
+
+    private final MentionParser mentionParser = new MentionParser();
+    private String text;
+    private List<MessageEntity> entities;
+
+    /**
+     * Сообщение вида "/addmembers backend @user0 Имя1 @user2 ..." - чётные упоминания по username, нечётные text_mention
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("/addmembers backend");
+        entities = new ArrayList<>();
+        entities.add(new MessageEntity("bot_command", 0, "/addmembers".length()));
+        for (int i = 0; i < mentionCount; i++) {
+            builder.append(' ');
+            int offset = builder.length();
+            if (i % 2 == 0) {
+                builder.append("@user").append(i);
+                entities.add(new MessageEntity("mention", offset, builder.length() - offset));
+            } else {
+                builder.append("Имя").append(i);
+                MessageEntity entity = new MessageEntity("text_mention", offset, builder.length() - offset);
+                entity.setUser(new User(1_000_000L + i, "Имя" + i, false));
+                entities.add(entity);
+            }
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public List<ParsedMention> parseMentions() {
+        return mentionParser.parseMentions(text, entities);
+    }
+}
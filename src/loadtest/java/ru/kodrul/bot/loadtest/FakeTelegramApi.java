@@ -0,0 +1,386 @@
+package ru.kodrul.bot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Локальная заглушка Telegram Bot API на JDK HttpServer.
+ * <p>
+ * Отдаёт боту синтетические обновления через long polling {@code getUpdates}, принимает {@code sendMessage}
+ * и {@code sendPhoto}, отвечает на {@code getChat}, {@code getChatMemberCount} и {@code getChatAdministrators}.
+ * Остальные методы (getMe, deleteWebhook, setMyCommands ...) просто подтверждаются.
+ * Каждый запрос, кроме getUpdates, задерживается на {@code apiLatencyMillis ± apiJitterMillis},
+ * часть отправок отклоняется с 429 и {@code retry_after}.
+ * <p>
+ * Задержка «обновление → ответ» считается по чатам: команды, на которые бот должен ответить, встают в очередь
+ * ожидания своего чата, а первое отправленное в этот чат сообщение закрывает самое старое ожидание.
+ * Бот обрабатывает обновления одного чата по порядку, поэтому сопоставление FIFO корректно
+ */
+@Slf4j
+public class FakeTelegramApi {
+
+    /**
+     * Текст запланированных постов: такие сообщения бот отправляет сам, они не являются ответом на команду
+     */
+    public static final String SCHEDULED_MARKER = "loadtest-scheduled";
+
+    private static final Pattern MULTIPART_FIELD = Pattern.compile(
+            "name=\"([^\"]+)\"(?:[^\\r\\n]*)\\r\\n(?:[^\\r\\n]+\\r\\n)*\\r\\n([\\s\\S]*?)\\r\\n--");
+    private static final int MAX_POLL_TIMEOUT_SECONDS = 50;
+
+    private final LoadTestOptions options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BlockingQueue<ObjectNode> updates = new LinkedBlockingQueue<>();
+    private final Map<Long, Queue<Expectation>> awaitingReply = new ConcurrentHashMap<>();
+    private final AtomicLong updateIds = new AtomicLong();
+    private final AtomicLong messageIds = new AtomicLong();
+    private final CountDownLatch connected = new CountDownLatch(1);
+    private final LatencyRecorder replyLatency = new LatencyRecorder();
+
+    private final Map<String, LongAdder> callsByMethod = new ConcurrentHashMap<>();
+    private final LongAdder deliveredUpdates = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder matchedReplies = new LongAdder();
+    private final LongAdder unmatchedReplies = new LongAdder();
+    private final LongAdder lostReplies = new LongAdder();
+    private final LongAdder scheduledPosts = new LongAdder();
+    private final AtomicLong lastReplyNanos = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeTelegramApi(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "FakeTelegramApi");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(options.getPort()), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Fake Bot API listening on http://localhost:{}/bot", options.getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ждёт первого запроса getUpdates, то есть подключения бота
+     */
+    public boolean awaitConnected(long timeout, TimeUnit unit) throws InterruptedException {
+        return connected.await(timeout, unit);
+    }
+
+    /**
+     * Ставит обновление с сообщением в очередь на выдачу боту
+     *
+     * @param expectsReply бот должен ответить на сообщение в тот же чат
+     * @param measured     учитывать задержку ответа в статистике (false для прогрева)
+     */
+    public void enqueue(ObjectNode message, boolean expectsReply, boolean measured) {
+        if (expectsReply) {
+            long chatId = message.path("chat").path("id").asLong();
+            awaitingReply.computeIfAbsent(chatId, id -> new ConcurrentLinkedQueue<>())
+                    .add(new Expectation(System.nanoTime(), measured));
+        }
+
+        ObjectNode update = mapper.createObjectNode();
+        update.put("update_id", updateIds.incrementAndGet());
+        update.set("message", message);
+        updates.add(update);
+    }
+
+    /**
+     * Сколько ответов ещё ожидается (без учёта просроченных)
+     */
+    public int pendingReplies() {
+        long deadline = System.nanoTime() - TimeUnit.SECONDS.toNanos(options.getReplyTimeoutSeconds());
+        int pending = 0;
+        for (Queue<Expectation> queue : awaitingReply.values()) {
+            for (Expectation expectation : queue) {
+                if (expectation.createdNanos - deadline > 0) {
+                    pending++;
+                }
+            }
+        }
+        return pending;
+    }
+
+    public int queuedUpdates() {
+        return updates.size();
+    }
+
+    public LatencyRecorder getReplyLatency() {
+        return replyLatency;
+    }
+
+    public long getLastReplyNanos() {
+        return lastReplyNanos.get();
+    }
+
+    public Map<String, Object> counters() {
+        Map<String, Object> result = new TreeMap<>();
+        result.put("deliveredUpdates", deliveredUpdates.sum());
+        result.put("matchedReplies", matchedReplies.sum());
+        result.put("unmatchedReplies", unmatchedReplies.sum());
+        result.put("lostReplies", lostReplies.sum() + pendingTotal());
+        result.put("scheduledPosts", scheduledPosts.sum());
+        result.put("injected429", rateLimited.sum());
+        Map<String, Long> calls = new TreeMap<>();
+        callsByMethod.forEach((method, count) -> calls.put(method, count.sum()));
+        result.put("apiCalls", calls);
+        return result;
+    }
+
+    private int pendingTotal() {
+        return awaitingReply.values().stream().mapToInt(Queue::size).sum();
+    }
+
+    private void handle(HttpExchange exchange) {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            // Bot API не чувствителен к регистру имени метода, библиотека шлёт, например, "sendmessage"
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            callsByMethod.computeIfAbsent(method, m -> new LongAdder()).increment();
+
+            Map<String, String> params = readParams(exchange);
+
+            if ("getupdates".equals(method)) {
+                connected.countDown();
+                respond(exchange, 200, ok(pollUpdates(params)));
+                return;
+            }
+
+            simulateLatency();
+
+            switch (method) {
+                case "sendmessage", "sendphoto" -> {
+                    if (ThreadLocalRandom.current().nextDouble() < options.getRateLimitProbability()) {
+                        rateLimited.increment();
+                        respond(exchange, 429, tooManyRequests());
+                        return;
+                    }
+                    String text = "sendphoto".equals(method) ? params.get("caption") : params.get("text");
+                    respond(exchange, 200, ok(onMessageSent(Long.parseLong(params.get("chat_id")), text)));
+                }
+                case "getme" -> respond(exchange, 200, ok(user(1L, options.getBotUsername(), true)));
+                case "getchat" -> respond(exchange, 200, ok(chat(Long.parseLong(params.get("chat_id")))));
+                case "getchatmembercount" -> respond(exchange, 200, ok(mapper.getNodeFactory().numberNode(options.getUsersPerChat() + 1)));
+                case "getchatadministrators" -> respond(exchange, 200, ok(administrators()));
+                default -> respond(exchange, 200, ok(mapper.getNodeFactory().booleanNode(true)));
+            }
+        } catch (Exception e) {
+            log.error("Fake API request failed", e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ArrayNode pollUpdates(Map<String, String> params) throws InterruptedException {
+        int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : 100;
+        int timeout = params.containsKey("timeout") ? Integer.parseInt(params.get("timeout")) : 0;
+
+        List<ObjectNode> batch = new ArrayList<>();
+        ObjectNode first = updates.poll(Math.min(timeout, MAX_POLL_TIMEOUT_SECONDS), TimeUnit.SECONDS);
+        if (first != null) {
+            batch.add(first);
+            updates.drainTo(batch, Math.max(0, limit - 1));
+        }
+
+        ArrayNode result = mapper.createArrayNode();
+        long now = System.currentTimeMillis() / 1000;
+        for (ObjectNode update : batch) {
+            ((ObjectNode) update.get("message")).put("date", now);
+            result.add(update);
+        }
+        deliveredUpdates.add(batch.size());
+        return result;
+    }
+
+    private ObjectNode onMessageSent(long chatId, String text) {
+        long now = System.nanoTime();
+        if (text != null && text.endsWith(SCHEDULED_MARKER)) {
+            scheduledPosts.increment();
+        } else {
+            matchReply(chatId, now);
+        }
+
+        ObjectNode message = mapper.createObjectNode();
+        message.put("message_id", messageIds.incrementAndGet());
+        message.put("date", System.currentTimeMillis() / 1000);
+        message.set("chat", chat(chatId));
+        message.set("from", user(1L, options.getBotUsername(), true));
+        message.put("text", text);
+        return message;
+    }
+
+    private void matchReply(long chatId, long now) {
+        Queue<Expectation> queue = awaitingReply.get(chatId);
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(options.getReplyTimeoutSeconds());
+        while (queue != null) {
+            Expectation expectation = queue.poll();
+            if (expectation == null) {
+                break;
+            }
+            if (now - expectation.createdNanos > timeoutNanos) {
+                lostReplies.increment();
+                continue;
+            }
+            matchedReplies.increment();
+            lastReplyNanos.set(now);
+            if (expectation.measured) {
+                replyLatency.record(TimeUnit.NANOSECONDS.toMillis(now - expectation.createdNanos));
+            }
+            return;
+        }
+        unmatchedReplies.increment();
+    }
+
+    private void simulateLatency() throws InterruptedException {
+        long jitter = options.getApiJitterMillis() > 0
+                ? ThreadLocalRandom.current().nextLong(-options.getApiJitterMillis(), options.getApiJitterMillis() + 1)
+                : 0;
+        long delay = options.getApiLatencyMillis() + jitter;
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    /**
+     * Параметры запроса: JSON (основной формат библиотеки), multipart (sendPhoto) или form/query string
+     */
+    private Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        Map<String, String> params = new HashMap<>();
+
+        if (contentType != null && contentType.startsWith("application/json") && !body.isBlank()) {
+            JsonNode json = mapper.readTree(body);
+            json.fields().forEachRemaining(field -> params.put(field.getKey(),
+                    field.getValue().isValueNode() ? field.getValue().asText() : field.getValue().toString()));
+        } else if (contentType != null && contentType.startsWith("multipart/form-data")) {
+            Matcher matcher = MULTIPART_FIELD.matcher(body);
+            while (matcher.find()) {
+                params.put(matcher.group(1), matcher.group(2));
+            }
+        } else {
+            String query = body.isBlank() ? exchange.getRequestURI().getRawQuery() : body;
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    int separator = pair.indexOf('=');
+                    if (separator > 0) {
+                        params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                                URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+        return params;
+    }
+
+    private ObjectNode ok(JsonNode result) {
+        ObjectNode response = mapper.createObjectNode();
+        response.put("ok", true);
+        response.set("result", result);
+        return response;
+    }
+
+    private ObjectNode tooManyRequests() {
+        ObjectNode response = mapper.createObjectNode();
+        response.put("ok", false);
+        response.put("error_code", 429);
+        response.put("description", "Too Many Requests: retry after " + options.getRetryAfterSeconds());
+        response.putObject("parameters").put("retry_after", options.getRetryAfterSeconds());
+        return response;
+    }
+
+    ObjectNode chat(long chatId) {
+        ObjectNode chat = mapper.createObjectNode();
+        chat.put("id", chatId);
+        chat.put("type", "supergroup");
+        chat.put("title", "Load chat " + Math.abs(chatId));
+        return chat;
+    }
+
+    ObjectNode user(long userId, String userName, boolean isBot) {
+        ObjectNode user = mapper.createObjectNode();
+        user.put("id", userId);
+        user.put("is_bot", isBot);
+        user.put("first_name", isBot ? "KodRul" : "User" + userId);
+        if (userName != null) {
+            user.put("username", userName);
+        }
+        return user;
+    }
+
+    private ArrayNode administrators() {
+        ArrayNode administrators = mapper.createArrayNode();
+        ObjectNode creator = administrators.addObject();
+        creator.put("status", "creator");
+        creator.put("is_anonymous", false);
+        creator.set("user", user(options.getCreatorId(), "load_creator", false));
+        return administrators;
+    }
+
+    ObjectMapper mapper() {
+        return mapper;
+    }
+
+    private void respond(HttpExchange exchange, int status, ObjectNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static class Expectation {
+
+        private final long createdNanos;
+        private final boolean measured;
+
+        private Expectation(long createdNanos, boolean measured) {
+            this.createdNanos = createdNanos;
+            this.measured = measured;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.kodrul.bot.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Хранит все измерения без агрегации, чтобы в конце прогона посчитать точные перцентили
+ */
+public class LatencyRecorder {
+
+    private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+
+    private long[] values = new long[1024];
+    private int size;
+
+    public synchronized void record(long millis) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = millis;
+    }
+
+    public synchronized int count() {
+        return size;
+    }
+
+    /**
+     * Перцентили по методу ближайшего ранга, а также min/max/mean, в миллисекундах
+     */
+    public synchronized Map<String, Object> summary() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", size);
+        if (size == 0) {
+            return result;
+        }
+
+        long[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        result.put("min", sorted[0]);
+        result.put("mean", Arrays.stream(sorted).average().orElse(0));
+        for (double percentile : PERCENTILES) {
+            int rank = (int) Math.ceil(percentile / 100 * size);
+            result.put("p" + (percentile % 1 == 0 ? String.valueOf((int) percentile) : String.valueOf(percentile)),
+                    sorted[Math.max(0, rank - 1)]);
+        }
+        result.put("max", sorted[size - 1]);
+        return result;
+    }
+}
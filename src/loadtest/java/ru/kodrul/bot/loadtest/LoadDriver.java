@@ -0,0 +1,143 @@
+package ru.kodrul.bot.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный прогон бота против локальной заглушки Bot API.
+ * <p>
+ * Порядок запуска:
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:java -Dexec.args="--creator-id=123 --rate=100 --duration=120"
+ * ./mvnw spring-boot:run -Dspring-boot.run.arguments="--bot.api-base-url=http://localhost:8081/bot --bot.bot-creator=123"
+ * </pre>
+ * Драйвер ждёт подключения бота, прогревает чаты (пользователи, группы), затем подаёт обновления с заданной
+ * частотой независимо от скорости ответов и после дренажа печатает перцентили задержки «обновление → ответ»
+ * и устойчивую пропускную способность. Полный отчёт пишется в JSON ({@code --report})
+ */
+@Slf4j
+public class LoadDriver {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long WARM_UP_TIMEOUT_SECONDS = 120;
+
+    private final LoadTestOptions options;
+    private final FakeTelegramApi api;
+    private final SyntheticTraffic traffic;
+
+    public LoadDriver(LoadTestOptions options, FakeTelegramApi api) {
+        this.options = options;
+        this.api = api;
+        this.traffic = new SyntheticTraffic(api, options);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        FakeTelegramApi api = new FakeTelegramApi(options);
+        api.start();
+        try {
+            new LoadDriver(options, api).run();
+        } finally {
+            api.stop();
+        }
+    }
+
+    public void run() throws Exception {
+        log.info("Waiting for the bot to connect (bot.api-base-url=http://localhost:{}/bot)", options.getPort());
+        if (!api.awaitConnected(options.getConnectTimeoutSeconds(), TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Bot did not call getUpdates in " + options.getConnectTimeoutSeconds() + " s");
+        }
+
+        log.info("Warming up {} chats with {} users each", options.getChats(), options.getUsersPerChat());
+        traffic.warmUp();
+        if (!awaitIdle(TimeUnit.SECONDS.toNanos(WARM_UP_TIMEOUT_SECONDS))) {
+            log.warn("Warm-up replies still pending, starting the measurement anyway");
+        }
+
+        log.info("Offering {} updates/s for {} s", options.getRate(), options.getDurationSeconds());
+        long startNanos = System.nanoTime();
+        long sent = offerLoad(startNanos);
+        long offeredNanos = System.nanoTime() - startNanos;
+
+        if (!awaitIdle(TimeUnit.SECONDS.toNanos(options.getDrainSeconds()))) {
+            log.warn("Drain timed out: {} updates queued, {} replies pending", api.queuedUpdates(), api.pendingReplies());
+        }
+
+        Map<String, Object> report = report(sent, startNanos, offeredNanos);
+        File file = new File(options.getReport());
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.writeValue(file, report);
+        System.out.println(mapper.writeValueAsString(report));
+        log.info("Report written to {}", file.getAbsolutePath());
+    }
+
+    /**
+     * Открытая модель нагрузки: обновления подаются по расписанию, отставание догоняется без пауз
+     */
+    private long offerLoad(long startNanos) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.getRate());
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+        long nextNanos = startNanos;
+        long nextProgressNanos = startNanos + PROGRESS_INTERVAL_NANOS;
+        long sent = 0;
+
+        while (endNanos - nextNanos > 0) {
+            long waitNanos = nextNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            traffic.next();
+            sent++;
+            nextNanos += intervalNanos;
+
+            if (System.nanoTime() - nextProgressNanos > 0) {
+                nextProgressNanos += PROGRESS_INTERVAL_NANOS;
+                log.info("Sent {} updates, {} queued for the bot, {} replies pending, {} replies measured",
+                        sent, api.queuedUpdates(), api.pendingReplies(), api.getReplyLatency().count());
+            }
+        }
+        return sent;
+    }
+
+    private boolean awaitIdle(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (api.queuedUpdates() > 0 || api.pendingReplies() > 0) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(200);
+        }
+        return true;
+    }
+
+    private Map<String, Object> report(long sent, long startNanos, long offeredNanos) {
+        double offeredSeconds = offeredNanos / 1e9;
+        long lastReplyNanos = api.getLastReplyNanos();
+        double replySeconds = lastReplyNanos - startNanos > 0 ? (lastReplyNanos - startNanos) / 1e9 : offeredSeconds;
+        int measuredReplies = api.getReplyLatency().count();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("sentUpdates", sent);
+        report.put("offeredUpdatesPerSecond", round(sent / offeredSeconds));
+        report.put("measuredReplies", measuredReplies);
+        report.put("replyThroughputPerSecond", round(measuredReplies / replySeconds));
+        report.put("replyLatencyMillis", api.getReplyLatency().summary());
+        report.putAll(api.counters());
+        return report;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100d;
+    }
+}
@@ -0,0 +1,95 @@
+package ru.kodrul.bot.loadtest;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Параметры прогона. Задаются аргументами вида {@code --rate=100 --duration=120}
+ */
+@Data
+public class LoadTestOptions {
+
+    /**
+     * Порт заглушки Bot API. Бот запускается с {@code bot.api-base-url=http://localhost:<port>/bot}
+     */
+    private int port = 8081;
+    private String botUsername = "kodrul_load_bot";
+    /**
+     * Должен совпадать с {@code bot.bot-creator}: от его имени отправляются команды с приватностью ADMIN
+     */
+    private long creatorId;
+
+    private int chats = 20;
+    private int usersPerChat = 15;
+    /**
+     * Целевая частота входящих обновлений в секунду (открытая модель: темп не зависит от скорости ответов бота)
+     */
+    private double rate = 50;
+    private int durationSeconds = 60;
+    private int connectTimeoutSeconds = 120;
+    /**
+     * Сколько ждать ответов на уже отправленные команды после окончания нагрузки
+     */
+    private int drainSeconds = 30;
+    /**
+     * Ответ, не пришедший за это время, считается потерянным
+     */
+    private int replyTimeoutSeconds = 30;
+
+    private long apiLatencyMillis = 30;
+    private long apiJitterMillis = 20;
+    /**
+     * Доля запросов sendMessage/sendPhoto, на которые заглушка отвечает 429
+     */
+    private double rateLimitProbability = 0.01;
+    private int retryAfterSeconds = 1;
+
+    private String report = "target/loadtest-result.json";
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions();
+        options.port = intValue(values, "port", options.port);
+        options.botUsername = values.getOrDefault("bot-username", options.botUsername);
+        options.creatorId = longValue(values, "creator-id", options.creatorId);
+        options.chats = intValue(values, "chats", options.chats);
+        options.usersPerChat = intValue(values, "users-per-chat", options.usersPerChat);
+        options.rate = doubleValue(values, "rate", options.rate);
+        options.durationSeconds = intValue(values, "duration", options.durationSeconds);
+        options.connectTimeoutSeconds = intValue(values, "connect-timeout", options.connectTimeoutSeconds);
+        options.drainSeconds = intValue(values, "drain", options.drainSeconds);
+        options.replyTimeoutSeconds = intValue(values, "reply-timeout", options.replyTimeoutSeconds);
+        options.apiLatencyMillis = longValue(values, "api-latency-ms", options.apiLatencyMillis);
+        options.apiJitterMillis = longValue(values, "api-jitter-ms", options.apiJitterMillis);
+        options.rateLimitProbability = doubleValue(values, "rate-limit-probability", options.rateLimitProbability);
+        options.retryAfterSeconds = intValue(values, "retry-after", options.retryAfterSeconds);
+        options.report = values.getOrDefault("report", options.report);
+
+        if (options.creatorId == 0) {
+            throw new IllegalArgumentException("--creator-id is required and must match bot.bot-creator");
+        }
+        return options;
+    }
+
+    private static int intValue(Map<String, String> values, String key, int defaultValue) {
+        return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+    }
+
+    private static long longValue(Map<String, String> values, String key, long defaultValue) {
+        return values.containsKey(key) ? Long.parseLong(values.get(key)) : defaultValue;
+    }
+
+    private static double doubleValue(Map<String, String> values, String key, double defaultValue) {
+        return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+    }
+}
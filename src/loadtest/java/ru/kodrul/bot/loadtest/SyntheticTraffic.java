@@ -0,0 +1,129 @@
+package ru.kodrul.bot.loadtest;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Генератор синтетических сообщений: обычный текст, упоминания, /tag, /randomize и создание расписаний.
+ * Все чаты - супергруппы с фиксированным набором пользователей и группой {@value #GROUP_NAME}
+ */
+public class SyntheticTraffic {
+
+    public static final String GROUP_NAME = "load";
+
+    private static final long CHAT_ID_BASE = -1_009_000_000_000L;
+    private static final long USER_ID_BASE = 700_000_000L;
+    private static final String EVERY_MINUTE = "0 * * * * ?";
+    private static final String[] PHRASES = {"привет", "кто на созвоне?", "гляньте PR", "обед в 13:00", "ок"};
+
+    private final FakeTelegramApi api;
+    private final LoadTestOptions options;
+    private final AtomicLong messageIds = new AtomicLong();
+
+    public SyntheticTraffic(FakeTelegramApi api, LoadTestOptions options) {
+        this.api = api;
+        this.options = options;
+    }
+
+    /**
+     * Каждый пользователь пишет в свой чат (бот узнаёт его username), затем создатель бота создаёт группу
+     * и добавляет в неё всех участников чата
+     */
+    public void warmUp() {
+        for (int chat = 0; chat < options.getChats(); chat++) {
+            for (int user = 0; user < options.getUsersPerChat(); user++) {
+                api.enqueue(message(chat, userId(chat, user), PHRASES[0]), false, false);
+            }
+            api.enqueue(command(chat, options.getCreatorId(), "/creategroup " + GROUP_NAME + " Нагрузочная группа"), true, false);
+
+            int chatIndex = chat;
+            String mentions = IntStream.range(0, options.getUsersPerChat())
+                    .mapToObj(user -> "@" + userName(userId(chatIndex, user)))
+                    .collect(Collectors.joining(" "));
+            api.enqueue(withMentions(command(chat, options.getCreatorId(), "/addmembers " + GROUP_NAME + " " + mentions)), true, false);
+        }
+    }
+
+    /**
+     * Одно случайное обновление из нагрузочного профиля
+     */
+    public void next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int chat = random.nextInt(options.getChats());
+        long from = userId(chat, random.nextInt(options.getUsersPerChat()));
+        int kind = random.nextInt(100);
+
+        if (kind < 45) {
+            api.enqueue(message(chat, from, PHRASES[random.nextInt(PHRASES.length)]), false, true);
+        } else if (kind < 65) {
+            long target = userId(chat, random.nextInt(options.getUsersPerChat()));
+            api.enqueue(withMentions(message(chat, from, "@" + userName(target) + " посмотри, пожалуйста")), false, true);
+        } else if (kind < 80) {
+            api.enqueue(command(chat, from, "/tag " + GROUP_NAME), true, true);
+        } else if (kind < 95) {
+            api.enqueue(command(chat, from, "/randomize " + GROUP_NAME), true, true);
+        } else {
+            api.enqueue(command(chat, options.getCreatorId(),
+                    "/createschedule " + GROUP_NAME + " \"" + EVERY_MINUTE + "\" " + FakeTelegramApi.SCHEDULED_MARKER), true, true);
+        }
+    }
+
+    private ObjectNode message(int chat, long from, String text) {
+        ObjectNode message = api.mapper().createObjectNode();
+        message.put("message_id", messageIds.incrementAndGet());
+        message.set("chat", api.chat(chatId(chat)));
+        message.set("from", api.user(from, from == options.getCreatorId() ? "load_creator" : userName(from), false));
+        message.put("text", text);
+        message.putArray("entities");
+        return message;
+    }
+
+    private ObjectNode command(int chat, long from, String text) {
+        ObjectNode message = message(chat, from, text);
+        int length = text.indexOf(' ') > 0 ? text.indexOf(' ') : text.length();
+        entity((ArrayNode) message.get("entities"), "bot_command", 0, length);
+        return message;
+    }
+
+    /**
+     * Размечает все "@username" в тексте сущностями mention. Смещения в UTF-16, как и в Telegram
+     */
+    private ObjectNode withMentions(ObjectNode message) {
+        String text = message.get("text").asText();
+        ArrayNode entities = (ArrayNode) message.get("entities");
+        int offset = text.indexOf('@');
+        while (offset >= 0) {
+            int end = offset + 1;
+            while (end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_')) {
+                end++;
+            }
+            entity(entities, "mention", offset, end - offset);
+            offset = text.indexOf('@', end);
+        }
+        return message;
+    }
+
+    private void entity(ArrayNode entities, String type, int offset, int length) {
+        ObjectNode entity = entities.addObject();
+        entity.put("type", type);
+        entity.put("offset", offset);
+        entity.put("length", length);
+    }
+
+    private long chatId(int chat) {
+        return CHAT_ID_BASE - chat;
+    }
+
+    private long userId(int chat, int user) {
+        return USER_ID_BASE + (long) chat * 1000 + user;
+    }
+
+    private String userName(long userId) {
+        return "load_user_" + userId;
+    }
+}
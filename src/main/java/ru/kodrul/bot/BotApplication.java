@@ -6,14 +6,20 @@ import org.telegram.abilitybots.api.bot.AbilityBot;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+import ru.kodrul.bot.config.properties.WebhookProperties;
+import ru.kodrul.bot.services.WebhookUpdateReceiver;
 
 @SpringBootApplication
 public class BotApplication {
 
 	public static void main(String[] args) throws TelegramApiException {
 		var app = SpringApplication.run(BotApplication.class, args);
-		TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-		botsApi.registerBot(app.getBean("kodRulBot", AbilityBot.class));
+		if (app.getBean(WebhookProperties.class).isEnabled()) {
+			app.getBean(WebhookUpdateReceiver.class).register();
+		} else {
+			TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+			botsApi.registerBot(app.getBean("kodRulBot", AbilityBot.class));
+		}
 	}
 
 }
@@ -7,6 +7,8 @@ import org.telegram.abilitybots.api.objects.Ability;
 import org.telegram.abilitybots.api.util.AbilityExtension;
 import ru.kodrul.bot.entity.ChatGroup;
 import ru.kodrul.bot.entity.GroupMember;
+import ru.kodrul.bot.pojo.GroupSnapshot;
+import ru.kodrul.bot.pojo.GroupSummary;
 import ru.kodrul.bot.services.GroupManagementService;
 import ru.kodrul.bot.services.MemberManagementService;
 import ru.kodrul.bot.services.SendService;
@@ -65,7 +67,7 @@ public class GroupManagementAbility implements AbilityExtension {
                 .locality(GROUP)
                 .privacy(PUBLIC)
                 .action(ctx -> {
-                    List<ChatGroup> groups = groupService.getChatGroups(ctx.chatId());
+                    List<GroupSummary> groups = groupService.getGroupSummaries(ctx.chatId());
                     if (groups.isEmpty()) {
                         sendService.sendMessageToThread(ctx, "В этом чате еще нет групп");
                         return;
@@ -194,7 +196,7 @@ public class GroupManagementAbility implements AbilityExtension {
                 .locality(GROUP)
                 .privacy(PUBLIC)
                 .action(ctx -> {
-                    List<ChatGroup> groups = groupService.getChatGroups(ctx.chatId());
+                    List<GroupSummary> groups = groupService.getGroupSummaries(ctx.chatId());
                     if (groups.isEmpty()) {
                         sendService.sendMessageToThread(ctx, "В этом чате еще нет групп");
                         return;
@@ -202,9 +204,9 @@ public class GroupManagementAbility implements AbilityExtension {
 
                     StringBuilder response = new StringBuilder("📊 *Сводка по группам в чате:*\n\n");
 
-                    int totalMembers = 0;
-                    for (ChatGroup group : groups) {
-                        int memberCount = group.getMembers().size();
+                    long totalMembers = 0;
+                    for (GroupSummary group : groups) {
+                        long memberCount = group.getMemberCount();
                         totalMembers += memberCount;
                         response.append("• *").append(group.getName()).append("*")
                                 .append(" - ").append(memberCount).append(" участников");
@@ -289,11 +291,10 @@ public class GroupManagementAbility implements AbilityExtension {
                         log.info("Tag command executed in chat: {}, thread: {} for group: {}",
                                 chatId, messageThreadId, groupName);
 
-                        Optional<ChatGroup> groupOpt = groupService.getGroupByNameWithMembersAndUsers(chatId, groupName);
+                        Optional<GroupSnapshot> groupOpt = groupService.getGroupSnapshot(chatId, groupName);
 
                         if (groupOpt.isPresent()) {
-                            ChatGroup chatGroup = groupOpt.get();
-                            String userNames = groupService.getTagUsersMessage(chatGroup);
+                            String userNames = groupService.getTagUsersMessage(groupOpt.get());
 
                             if (userNames != null && !userNames.trim().isEmpty()) {
                                 sendService.sendMessageToThread(ctx, userNames);
@@ -47,6 +47,7 @@ public class HelperAbility implements AbilityExtension {
                         commands.append("• `/listschedules` - Показать активные расписания для этого чата\n");
                         commands.append("• `/listgroupschedules <название_группы>` - Показать расписания для группы\n");
                         commands.append("• `/toggleschedule <ID расписания> on/off` - Включить/выключить расписание\n");
+                        commands.append("• `/schedulemisfire <ID расписания> once/skip/all` - Что делать с пропущенными срабатываниями\n");
                         commands.append("• `/deleteschedule <ID расписания>` - Удалить расписание\n");
                         commands.append("• `/scheduleinfo <ID расписания>` - Получить подробную информацию о расписании\n");
                         commands.append("• `/schedulehelp` - Показать справку по созданию расписаний\n\n");
@@ -8,6 +8,7 @@ import org.telegram.abilitybots.api.objects.MessageContext;
 import org.telegram.abilitybots.api.util.AbilityExtension;
 import ru.kodrul.bot.common.CommonAbilityHelper;
 import ru.kodrul.bot.entity.ChatGroup;
+import ru.kodrul.bot.entity.MisfirePolicy;
 import ru.kodrul.bot.entity.ScheduledPost;
 import ru.kodrul.bot.parser.CommandParser;
 import ru.kodrul.bot.pojo.CommandArguments;
@@ -266,6 +267,42 @@ public class ScheduleAbility implements AbilityExtension {
                 .build();
     }
 
+    public Ability scheduleMisfireAbility() {
+        return Ability.builder()
+                .name("schedulemisfire")
+                .locality(GROUP)
+                .privacy(ADMIN)
+                .input(2)
+                .action(ctx -> {
+                    String[] args = ctx.arguments();
+                    Optional<MisfirePolicy> policyOpt = args.length < 2 ? Optional.empty() : MisfirePolicy.fromCode(args[1]);
+                    if (policyOpt.isEmpty()) {
+                        sendService.sendMessageToThread(ctx, "Использование: /schedulemisfire <ID расписания> <once|skip|all>\n\n" +
+                                "Что делать с срабатываниями, пропущенными пока бот был недоступен:\n" +
+                                "once - отправить один раз\n" +
+                                "skip - пропустить\n" +
+                                "all - отправить все пропущенные");
+                        return;
+                    }
+
+                    try {
+                        Long scheduleId = Long.parseLong(args[0]);
+
+                        scheduledService.setMisfirePolicy(scheduleId, policyOpt.get());
+
+                        sendService.sendMessageToThread(ctx, "✅ Пропущенные срабатывания: " + policyOpt.get().getDescription());
+
+                    } catch (NumberFormatException e) {
+                        sendService.sendMessageToThread(ctx, "❌ ID расписания должен быть числом");
+                    } catch (IllegalArgumentException e) {
+                        sendService.sendMessageToThread(ctx, "❌ " + e.getMessage());
+                    } catch (Exception e) {
+                        sendService.sendMessageToThread(ctx, "❌ Ошибка при изменении расписания");
+                    }
+                })
+                .build();
+    }
+
     public Ability deleteScheduleAbility() {
         return Ability.builder()
                 .name("deleteschedule")
@@ -326,6 +363,7 @@ public class ScheduleAbility implements AbilityExtension {
                                     .append("💬 *Сообщение:* ").append(schedule.getMessageText()).append("\n")
                                     .append("🖼️ *Изображение:* ").append(schedule.getImageUrl() != null ? "есть" : "нет").append("\n")
                                     .append("📊 *Статус:* ").append(schedule.getIsActive() ? "активно" : "неактивно").append("\n")
+                                    .append("⏭️ *Пропущенные срабатывания:* ").append(schedule.getMisfirePolicy().getDescription()).append("\n")
                                     .append("👤 *Создано:* ").append(schedule.getCreatedBy()).append("\n")
                                     .append("📅 *Создано:* ").append(schedule.getCreatedAt().toLocalDate()).append("\n");
 
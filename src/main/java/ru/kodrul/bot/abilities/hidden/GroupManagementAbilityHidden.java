@@ -8,6 +8,7 @@ import org.telegram.abilitybots.api.util.AbilityExtension;
 import ru.kodrul.bot.common.CommonAbilityHelper;
 import ru.kodrul.bot.entity.ChatGroup;
 import ru.kodrul.bot.entity.GroupMember;
+import ru.kodrul.bot.pojo.GroupSummary;
 import ru.kodrul.bot.services.AuthorizationService;
 import ru.kodrul.bot.services.GroupManagementService;
 import ru.kodrul.bot.services.MemberManagementService;
@@ -178,7 +179,7 @@ public class GroupManagementAbilityHidden implements AbilityExtension {
                     }
 
                     Long targetChatId = Long.parseLong(args[0]);
-                    List<ChatGroup> groups = groupManagementService.getChatGroups(targetChatId);
+                    List<GroupSummary> groups = groupManagementService.getGroupSummaries(targetChatId);
                     if (groups.isEmpty()) {
                         sendService.sendMessageToThread(ctx, "В этом чате еще нет групп");
                         return;
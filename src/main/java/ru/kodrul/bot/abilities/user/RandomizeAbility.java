@@ -1,12 +1,11 @@
 package ru.kodrul.bot.abilities.user;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
-import org.telegram.abilitybots.api.bot.AbilityBot;
 import org.telegram.abilitybots.api.objects.Ability;
 import org.telegram.abilitybots.api.util.AbilityExtension;
 import ru.kodrul.bot.services.RandomizeService;
+import ru.kodrul.bot.services.SendService;
 import ru.kodrul.bot.utils.EscapeHelper;
 
 import static org.telegram.abilitybots.api.objects.Locality.ALL;
@@ -16,9 +15,8 @@ import static org.telegram.abilitybots.api.objects.Privacy.PUBLIC;
 @RequiredArgsConstructor
 public class RandomizeAbility implements AbilityExtension {
 
-    @Lazy
-    private final AbilityBot abilityBot;
     private final RandomizeService randomizeService;
+    private final SendService sendService;
 
     public Ability randomizeAbility() {
         return Ability
@@ -26,7 +24,7 @@ public class RandomizeAbility implements AbilityExtension {
                 .name("randomize")
                 .locality(ALL)
                 .privacy(PUBLIC)
-                .action(ctx -> randomizeService.replayRandomize(ctx, abilityBot.silent()))
+                .action(ctx -> randomizeService.replayRandomize(ctx))
                 .build();
     }
 
@@ -40,18 +38,18 @@ public class RandomizeAbility implements AbilityExtension {
                 .action(ctx -> {
                     String[] args = ctx.arguments();
                     if (args.length < 2) {
-                        abilityBot.silent().send("Использование: /randomizemulti <группа> <количество>", ctx.chatId());
+                        sendService.sendToChat(ctx.chatId(), "Использование: /randomizemulti <группа> <количество>");
                         return;
                     }
 
                     try {
                         String groupName = args[0];
                         int count = Integer.parseInt(args[1]);
-                        randomizeService.randomizeMultipleFromGroup(ctx, abilityBot.silent(), groupName, count);
+                        randomizeService.randomizeMultipleFromGroup(ctx, groupName, count);
                     } catch (NumberFormatException e) {
-                        abilityBot.silent().send("❌ Количество должно быть числом", ctx.chatId());
+                        sendService.sendToChat(ctx.chatId(), "❌ Количество должно быть числом");
                     } catch (Exception e) {
-                        abilityBot.silent().send("❌ Ошибка при выполнении команды", ctx.chatId());
+                        sendService.sendToChat(ctx.chatId(), "❌ Ошибка при выполнении команды");
                     }
                 })
                 .build();
@@ -67,18 +65,18 @@ public class RandomizeAbility implements AbilityExtension {
                 .action(ctx -> {
                     String[] args = ctx.arguments();
                     if (args.length < 2) {
-                        abilityBot.silent().send("Использование: /distributeteams <группа> <количество_команд>", ctx.chatId());
+                        sendService.sendToChat(ctx.chatId(), "Использование: /distributeteams <группа> <количество_команд>");
                         return;
                     }
 
                     try {
                         String groupName = args[0];
                         int teamCount = Integer.parseInt(args[1]);
-                        randomizeService.distributeGroupToTeams(ctx, abilityBot.silent(), EscapeHelper.escapeMarkdownV2(groupName), teamCount);
+                        randomizeService.distributeGroupToTeams(ctx, EscapeHelper.escapeMarkdownV2(groupName), teamCount);
                     } catch (NumberFormatException e) {
-                        abilityBot.silent().send("❌ Количество команд должно быть числом", ctx.chatId());
+                        sendService.sendToChat(ctx.chatId(), "❌ Количество команд должно быть числом");
                     } catch (Exception e) {
-                        abilityBot.silent().send("❌ Ошибка при распределении по командам", ctx.chatId());
+                        sendService.sendToChat(ctx.chatId(), "❌ Ошибка при распределении по командам");
                     }
                 })
                 .build();
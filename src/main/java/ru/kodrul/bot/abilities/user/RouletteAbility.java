@@ -1,9 +1,7 @@
 package ru.kodrul.bot.abilities.user;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
-import org.telegram.abilitybots.api.bot.AbilityBot;
 import org.telegram.abilitybots.api.objects.Ability;
 import org.telegram.abilitybots.api.util.AbilityExtension;
 import ru.kodrul.bot.services.RouletteService;
@@ -15,8 +13,6 @@ import static org.telegram.abilitybots.api.objects.Privacy.PUBLIC;
 @RequiredArgsConstructor
 public class RouletteAbility implements AbilityExtension {
 
-    @Lazy
-    private final AbilityBot abilityBot;
     private final RouletteService rouletteService;
 
     public Ability rouletteAbility() {
@@ -25,7 +21,7 @@ public class RouletteAbility implements AbilityExtension {
                 .name("roulette")
                 .locality(ALL)
                 .privacy(PUBLIC)
-                .action(messageContext -> rouletteService.replyRussianRoulette(messageContext, abilityBot.silent()))
+                .action(messageContext -> rouletteService.replyRussianRoulette(messageContext))
                 .build();
     }
 }
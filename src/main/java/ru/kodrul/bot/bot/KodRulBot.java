@@ -1,11 +1,16 @@
 package ru.kodrul.bot.bot;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import org.telegram.abilitybots.api.bot.AbilityBot;
 import org.telegram.abilitybots.api.toggle.CustomToggle;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import ru.kodrul.bot.abilities.admin.HelperAbility;
 import ru.kodrul.bot.abilities.hidden.GroupManagementAbilityHidden;
@@ -20,8 +25,12 @@ import ru.kodrul.bot.abilities.admin.ScheduleAbility;
 import ru.kodrul.bot.abilities.admin.UserManagementAbility;
 import ru.kodrul.bot.config.properties.BotProperties;
 import ru.kodrul.bot.handlers.ResponseHandler;
+import ru.kodrul.bot.services.UpdateDispatcher;
 
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -29,6 +38,9 @@ public class KodRulBot extends AbilityBot {
 
     private final Set<ResponseHandler> handlers;
     private final BotProperties properties;
+    private final UpdateDispatcher updateDispatcher;
+    private final MeterRegistry meterRegistry;
+    private final Timer updateLag;
 
     private static final CustomToggle toggle = new CustomToggle()
             .turnOff("commands")
@@ -38,6 +50,8 @@ public class KodRulBot extends AbilityBot {
             Environment environment,
             Set<ResponseHandler> handlers,
             BotProperties properties,
+            UpdateDispatcher updateDispatcher,
+            MeterRegistry meterRegistry,
             @Lazy RouletteAbility rouletteAbility,
             @Lazy RandomizeAbility randomizeAbility,
             @Lazy GroupManagementAbility groupManagementAbility,
@@ -50,9 +64,14 @@ public class KodRulBot extends AbilityBot {
             @Lazy HelperAbilityHidden helperAbilityHidden,
             @Lazy UserManagementAbilityHidden userManagementAbilityHidden
     ) {
-        super(environment.getProperty("bot.token"), environment.getProperty("bot.name"), toggle);
+        super(environment.getProperty("bot.token"), environment.getProperty("bot.name"), toggle, botOptions(properties));
         this.handlers = handlers;
         this.properties = properties;
+        this.updateDispatcher = updateDispatcher;
+        this.meterRegistry = meterRegistry;
+        this.updateLag = Timer.builder("bot.updates.lag")
+                .description("Задержка между отправкой сообщения в Telegram и его получением ботом")
+                .register(meterRegistry);
 
         addExtensions(
                 rouletteAbility,
@@ -69,19 +88,115 @@ public class KodRulBot extends AbilityBot {
         );
     }
 
+    /**
+     * В потоке получения обновлений только выбираем подходящие обработчики. Обработчики и команда обновления
+     * выполняются одной задачей в {@link UpdateDispatcher}: сначала обработчики (синхронизация пользователей и т.п.),
+     * затем команда - как и при синхронной обработке, команда видит результат синхронизации своего сообщения
+     */
     @Override
     public void onUpdateReceived(Update update) {
-        handlers.stream()
+        recordReceived(update);
+
+        List<ResponseHandler> accepted = handlers.stream()
                 .filter(handler -> handler.canAccept(update))
-                .forEach(handler -> {
-                    try {
-                        handler.handle(update, silent);
-                    } catch (Exception e) {
-                        log.error("Error in handler {}", handler.getClass().getSimpleName(), e);
-                    }
-                });
+                .toList();
+
         log.info("Receive new Update. updateID: {}", update.getUpdateId());
-        super.onUpdateReceived(update);
+        updateDispatcher.submit(update, () -> {
+            accepted.forEach(handler -> handle(handler, update));
+            dispatchCommand(update);
+        });
+    }
+
+    private void dispatchCommand(Update update) {
+        String command = commandOf(update);
+        if (command == null) {
+            super.onUpdateReceived(update);
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            super.onUpdateReceived(update);
+        } finally {
+            sample.stop(Timer.builder("bot.command.duration")
+                    .description("Время выполнения команды бота")
+                    .tag("command", command)
+                    .register(meterRegistry));
+        }
+    }
+
+    private void handle(ResponseHandler handler, Update update) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            handler.handle(update, silent);
+        } catch (Exception e) {
+            outcome = "error";
+            log.error("Error in handler {}", handler.getClass().getSimpleName(), e);
+        } finally {
+            sample.stop(Timer.builder("bot.handler.duration")
+                    .description("Время выполнения обработчика обновлений")
+                    .tag("handler", handler.getClass().getSimpleName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private void recordReceived(Update update) {
+        Counter.builder("bot.updates.received")
+                .description("Полученные обновления по типам")
+                .tag("type", typeOf(update))
+                .register(meterRegistry)
+                .increment();
+
+        if (update.hasMessage() && update.getMessage().getDate() != null) {
+            long sentAtMillis = TimeUnit.SECONDS.toMillis(update.getMessage().getDate());
+            updateLag.record(Math.max(0, System.currentTimeMillis() - sentAtMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private String typeOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().isCommand() ? "command" : "message";
+        }
+        if (update.hasEditedMessage()) {
+            return "edited_message";
+        }
+        if (update.hasCallbackQuery()) {
+            return "callback_query";
+        }
+        if (update.hasMyChatMember() || update.hasChatMember()) {
+            return "chat_member";
+        }
+        return "other";
+    }
+
+    /**
+     * Имя команды для метрик: название ability, "unknown" для незарегистрированных команд
+     * (чтобы произвольный ввод не раздувал число тегов) или null, если сообщение не команда
+     */
+    private String commandOf(Update update) {
+        if (!update.hasMessage() || !update.getMessage().isCommand()) {
+            return null;
+        }
+
+        Message message = update.getMessage();
+        String text = message.getText();
+        int end = 1;
+        while (end < text.length() && !Character.isWhitespace(text.charAt(end)) && text.charAt(end) != '@') {
+            end++;
+        }
+        String command = text.substring(1, end).toLowerCase(Locale.ROOT);
+        return abilities() != null && abilities().containsKey(command) ? command : "unknown";
+    }
+
+    private static DefaultBotOptions botOptions(BotProperties properties) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        if (properties.getApiBaseUrl() != null && !properties.getApiBaseUrl().isBlank()) {
+            options.setBaseUrl(properties.getApiBaseUrl());
+        }
+        return options;
     }
 
     @Override
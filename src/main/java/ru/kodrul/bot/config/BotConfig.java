@@ -4,17 +4,60 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 @EnableScheduling
 @Configuration
 public class BotConfig {
 
+    private static final int SCHEDULER_THREADS = 2;
+    private static final int ROULETTE_THREADS = 2;
+    private static final int SCHEDULED_POSTS_THREADS = 8;
+    private static final int SCHEDULED_POSTS_QUEUE_CAPACITY = 1000;
+
+    /**
+     * Планировщик задач {@code @Scheduled}: сброс буфера пользователей, очистка очередей отправки, ночные синхронизации.
+     * Два потока, чтобы долгая ночная задача не задерживала периодический сброс в базу
+     */
     @Bean
     public TaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
         scheduler.setThreadNamePrefix("SchedulerThread-");
+        scheduler.setPoolSize(SCHEDULER_THREADS);
         scheduler.initialize();
         return scheduler;
     }
-}
\ No newline at end of file
+
+    /**
+     * Отдельный планировщик шагов партий в рулетку: паузы между ходами не должны ждать задач {@code @Scheduled}
+     * с запросами к базе. Шаг только ставит сообщение в очередь отправки, поэтому потоков нужно немного
+     */
+    @Bean
+    public TaskScheduler rouletteScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("Roulette-");
+        scheduler.setPoolSize(ROULETTE_THREADS);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * Ограниченный пул для параллельной подготовки и отправки запланированных постов.
+     * При переполнении очереди задача выполняется в потоке планировщика, притормаживая его
+     */
+    @Bean
+    public ThreadPoolTaskExecutor scheduledPostsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ScheduledPost-");
+        executor.setCorePoolSize(SCHEDULED_POSTS_THREADS);
+        executor.setMaxPoolSize(SCHEDULED_POSTS_THREADS);
+        executor.setQueueCapacity(SCHEDULED_POSTS_QUEUE_CAPACITY);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
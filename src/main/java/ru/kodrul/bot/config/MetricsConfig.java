@@ -0,0 +1,96 @@
+package ru.kodrul.bot.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.kodrul.bot.services.CronService;
+import ru.kodrul.bot.services.GroupSnapshotCache;
+import ru.kodrul.bot.services.OutboundMessageDispatcher;
+import ru.kodrul.bot.services.ScheduledMessageService;
+import ru.kodrul.bot.services.ScheduledPayloadCache;
+import ru.kodrul.bot.services.TelegramUserCache;
+import ru.kodrul.bot.services.UpdateDispatcher;
+import ru.kodrul.bot.services.UserSyncService;
+import ru.kodrul.bot.services.UserWriteBehindBuffer;
+import ru.kodrul.bot.services.WebhookUpdateReceiver;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Публикация в Micrometer счётчиков и размеров очередей, которые сервисы ведут сами.
+ * Таймеры (обработчики, команды, отправки, тики планировщика) регистрируются в самих сервисах,
+ * время запросов к репозиториям пишет Spring Boot ({@code spring.data.repository.invocations})
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder botMetrics(UpdateDispatcher updateDispatcher,
+                                  OutboundMessageDispatcher outboundMessageDispatcher,
+                                  ScheduledMessageService scheduledMessageService,
+                                  UserWriteBehindBuffer userWriteBehindBuffer,
+                                  UserSyncService userSyncService,
+                                  TelegramUserCache telegramUserCache,
+                                  GroupSnapshotCache groupSnapshotCache,
+                                  CronService cronService,
+                                  ScheduledPayloadCache scheduledPayloadCache,
+                                  ObjectProvider<WebhookUpdateReceiver> webhookUpdateReceiver) {
+        return registry -> {
+            gauge(registry, "bot.updates.queue.depth", updateDispatcher, UpdateDispatcher::getQueueDepth);
+            counter(registry, "bot.updates.handled", updateDispatcher, UpdateDispatcher::getSubmittedCount, "state", "submitted");
+            counter(registry, "bot.updates.handled", updateDispatcher, UpdateDispatcher::getCompletedCount, "state", "completed");
+            counter(registry, "bot.updates.handled", updateDispatcher, UpdateDispatcher::getFailedCount, "state", "failed");
+            counter(registry, "bot.updates.blocked", updateDispatcher, UpdateDispatcher::getBlockedCount);
+
+            webhookUpdateReceiver.ifAvailable(receiver -> {
+                gauge(registry, "bot.webhook.queue.depth", receiver, WebhookUpdateReceiver::getQueueDepth);
+                counter(registry, "bot.webhook.updates", receiver, WebhookUpdateReceiver::getAcceptedCount, "result", "accepted");
+                counter(registry, "bot.webhook.updates", receiver, WebhookUpdateReceiver::getRejectedCount, "result", "rejected");
+                counter(registry, "bot.webhook.updates", receiver, WebhookUpdateReceiver::getProcessedCount, "result", "processed");
+            });
+
+            gauge(registry, "bot.outbound.queue.depth", outboundMessageDispatcher, OutboundMessageDispatcher::getQueueDepth);
+            counter(registry, "bot.outbound.messages", outboundMessageDispatcher, OutboundMessageDispatcher::getDispatchedCount, "result", "sent");
+            counter(registry, "bot.outbound.messages", outboundMessageDispatcher, OutboundMessageDispatcher::getFailedCount, "result", "failed");
+            counter(registry, "bot.outbound.messages", outboundMessageDispatcher, OutboundMessageDispatcher::getRejectedCount, "result", "rejected");
+            counter(registry, "bot.outbound.retries", outboundMessageDispatcher, OutboundMessageDispatcher::getRetriedCount);
+            counter(registry, "bot.outbound.rate.limited", outboundMessageDispatcher, OutboundMessageDispatcher::getRateLimitedCount);
+            counter(registry, "bot.outbound.retries.exhausted", outboundMessageDispatcher, OutboundMessageDispatcher::getRetriesExhaustedCount);
+            counter(registry, "bot.outbound.fallbacks", outboundMessageDispatcher, OutboundMessageDispatcher::getFallbackCount);
+
+            gauge(registry, "bot.scheduler.catchup.pending", scheduledMessageService, ScheduledMessageService::getCatchUpBacklog);
+
+            gauge(registry, "bot.users.pending", userWriteBehindBuffer, UserWriteBehindBuffer::getPendingCount);
+            counter(registry, "bot.users.recorded", userWriteBehindBuffer, UserWriteBehindBuffer::getRecordedCount);
+            counter(registry, "bot.users.flushed", userWriteBehindBuffer, UserWriteBehindBuffer::getFlushedCount);
+            counter(registry, "bot.users.flushes", userWriteBehindBuffer, UserWriteBehindBuffer::getFlushCount, "result", "ok");
+            counter(registry, "bot.users.flushes", userWriteBehindBuffer, UserWriteBehindBuffer::getFlushFailedCount, "result", "failed");
+            counter(registry, "bot.users.writes.skipped", userSyncService, UserSyncService::getSkippedWrites);
+
+            cache(registry, "users", telegramUserCache, TelegramUserCache::getHits, TelegramUserCache::getMisses, TelegramUserCache::getSize);
+            cache(registry, "groups", groupSnapshotCache, GroupSnapshotCache::getHits, GroupSnapshotCache::getMisses, GroupSnapshotCache::getSize);
+            cache(registry, "cron", cronService, CronService::getCacheHits, CronService::getCacheMisses, CronService::getCacheSize);
+            cache(registry, "scheduled_payloads", scheduledPayloadCache,
+                    ScheduledPayloadCache::getHits, ScheduledPayloadCache::getMisses, ScheduledPayloadCache::getSize);
+        };
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value, String... tags) {
+        Gauge.builder(name, source, value).tags(tags).register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> value, String... tags) {
+        FunctionCounter.builder(name, source, value).tags(tags).register(registry);
+    }
+
+    private static <T> void cache(MeterRegistry registry, String cache, T source,
+                                  ToDoubleFunction<T> hits, ToDoubleFunction<T> misses, ToDoubleFunction<T> size) {
+        counter(registry, "bot.cache.gets", source, hits, "cache", cache, "result", "hit");
+        counter(registry, "bot.cache.gets", source, misses, "cache", cache, "result", "miss");
+        gauge(registry, "bot.cache.size", source, size, "cache", cache);
+    }
+}
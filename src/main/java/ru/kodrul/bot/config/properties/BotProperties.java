@@ -14,4 +14,9 @@ public class BotProperties {
     String name;
     String token;
     Integer botCreator;
+    /**
+     * Адрес Bot API вместе с префиксом "bot", к которому дописываются токен и метод.
+     * Переопределяется, чтобы направить бота на локальную заглушку Telegram при нагрузочном тестировании
+     */
+    String apiBaseUrl;
 }
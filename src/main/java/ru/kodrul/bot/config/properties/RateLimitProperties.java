@@ -8,8 +8,36 @@ import org.springframework.stereotype.Component;
 @Component
 @ConfigurationProperties(prefix = "bot.rate-limiting")
 public class RateLimitProperties {
-    // TODO нужно ли и где возможно использовать?
+
+    /**
+     * Глобальный лимит исходящих сообщений в секунду (для всех чатов)
+     */
     private int messagesPerSecond;
+
+    /**
+     * Лимит исходящих сообщений в минуту для одного чата
+     */
     private int maxMessagesPerMinute;
+
     private boolean enabled;
-}
\ No newline at end of file
+
+    /**
+     * Максимальное количество сообщений, ожидающих отправки
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Количество потоков, выполняющих запросы к Telegram API
+     */
+    private int senderThreads = 4;
+
+    /**
+     * Максимальное количество повторных попыток отправки при временных ошибках (429, 5xx, сетевые ошибки)
+     */
+    private int maxRetries = 5;
+
+    /**
+     * Базовая задержка экспоненциального повтора при 5xx и сетевых ошибках
+     */
+    private long retryBaseDelayMillis = 1000;
+}
@@ -0,0 +1,21 @@
+package ru.kodrul.bot.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "bot.update-pipeline")
+public class UpdatePipelineProperties {
+
+    /**
+     * Количество очередей (и потоков) обработчиков. Обновления одного чата всегда попадают в одну очередь
+     */
+    private int lanes = 4;
+
+    /**
+     * Ёмкость очереди одного потока. При переполнении поток получения обновлений ждёт места в очереди
+     */
+    private int queueCapacity = 1000;
+}
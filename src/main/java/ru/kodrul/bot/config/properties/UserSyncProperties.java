@@ -0,0 +1,31 @@
+package ru.kodrul.bot.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "bot.user-sync")
+public class UserSyncProperties {
+
+    /**
+     * Период сброса накопленных изменений пользователей в базу
+     */
+    private long flushIntervalMillis = 5000;
+
+    /**
+     * Количество накопленных пользователей, при котором буфер сбрасывается, не дожидаясь периода
+     */
+    private int flushThreshold = 500;
+
+    /**
+     * Максимальное количество пользователей в кэше снимков
+     */
+    private int cacheMaxSize = 10_000;
+
+    /**
+     * Как часто записывать lastSeen пользователя, если его профиль не менялся
+     */
+    private long lastSeenWriteIntervalMinutes = 10;
+}
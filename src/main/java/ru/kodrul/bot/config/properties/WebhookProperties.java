@@ -0,0 +1,42 @@
+package ru.kodrul.bot.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "bot.webhook")
+public class WebhookProperties {
+
+    /**
+     * Получать обновления через webhook вместо long polling
+     */
+    private boolean enabled;
+
+    /**
+     * Публичный адрес приложения, например https://bot.example.com. Итоговый адрес webhook: url + path
+     */
+    private String url;
+
+    /**
+     * Путь HTTP-эндпоинта, принимающего обновления
+     */
+    private String path = "/telegram/webhook";
+
+    /**
+     * Секрет, который Telegram передаёт в заголовке X-Telegram-Bot-Api-Secret-Token.
+     * Обязателен при {@code enabled = true}: без него приложение не запустится
+     */
+    private String secretToken;
+
+    /**
+     * Максимальное количество принятых, но ещё не обработанных обновлений
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Максимальное количество одновременных соединений от Telegram к webhook
+     */
+    private int maxConnections = 40;
+}
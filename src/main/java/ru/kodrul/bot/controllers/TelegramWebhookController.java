@@ -0,0 +1,55 @@
+package ru.kodrul.bot.controllers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.kodrul.bot.config.properties.WebhookProperties;
+import ru.kodrul.bot.services.WebhookUpdateReceiver;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "bot.webhook", name = "enabled", havingValue = "true")
+public class TelegramWebhookController {
+
+    private static final String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final WebhookUpdateReceiver webhookUpdateReceiver;
+    private final WebhookProperties properties;
+
+    /**
+     * Только проверяет секрет и ставит обновление в очередь: ответ Telegram не ждёт обработки
+     */
+    @PostMapping("${bot.webhook.path:/telegram/webhook}")
+    public ResponseEntity<Void> onUpdate(
+            @RequestHeader(value = SECRET_TOKEN_HEADER, required = false) String secretToken,
+            @RequestBody Update update) {
+
+        if (!isSecretValid(secretToken)) {
+            log.warn("Rejected webhook request with invalid secret token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        if (!webhookUpdateReceiver.offer(update)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private boolean isSecretValid(String secretToken) {
+        // Секрет обязателен в режиме webhook и проверяется при старте WebhookUpdateReceiver
+        return secretToken != null && MessageDigest.isEqual(
+                properties.getSecretToken().getBytes(StandardCharsets.UTF_8),
+                secretToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
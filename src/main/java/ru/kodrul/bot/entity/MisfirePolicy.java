@@ -0,0 +1,39 @@
+package ru.kodrul.bot.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Optional;
+
+/**
+ * Что делать со срабатываниями расписания, пропущенными из-за простоя бота или затянувшегося тика
+ */
+@Getter
+@RequiredArgsConstructor
+public enum MisfirePolicy {
+
+    /**
+     * Отправить один пост вместо всех пропущенных
+     */
+    FIRE_ONCE_NOW("once", "отправить один раз"),
+    /**
+     * Пропущенные срабатывания не отправлять, ждать следующего по расписанию
+     */
+    SKIP("skip", "пропустить"),
+    /**
+     * Отправить пост за каждое пропущенное срабатывание (с ограничением на количество)
+     */
+    FIRE_ALL_MISSED("all", "отправить все пропущенные");
+
+    private final String code;
+    private final String description;
+
+    public static Optional<MisfirePolicy> fromCode(String code) {
+        for (MisfirePolicy policy : values()) {
+            if (policy.code.equalsIgnoreCase(code)) {
+                return Optional.of(policy);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -2,10 +2,13 @@ package ru.kodrul.bot.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Data;
 
@@ -16,7 +19,8 @@ import java.time.LocalDateTime;
 @Table(name = "scheduled_posts")
 public class ScheduledPost {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "scheduled_posts_id_seq")
+    @SequenceGenerator(name = "scheduled_posts_id_seq", sequenceName = "scheduled_posts_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "chat_id", nullable = false)
@@ -46,6 +50,16 @@ public class ScheduledPost {
     @Column(name = "last_sent")
     private LocalDateTime lastSent;
 
+    /**
+     * Ближайшее плановое срабатывание. Null у выключенных расписаний и у cron-выражений без следующего срабатывания
+     */
+    @Column(name = "next_fire_at")
+    private LocalDateTime nextFireAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "misfire_policy", nullable = false, length = 20)
+    private MisfirePolicy misfirePolicy = MisfirePolicy.FIRE_ONCE_NOW;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
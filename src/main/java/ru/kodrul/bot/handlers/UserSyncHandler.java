@@ -83,8 +83,8 @@ public class UserSyncHandler extends ResponseHandler {
     }
 
     private void syncUserByUsername(String username, Long chatId) {
-        Optional<TelegramUser> userOpt = userSyncService.findUserByUsername(username);
-        if (userOpt.isPresent()) {
+        Optional<Long> userIdOpt = userSyncService.findUserIdByUsername(username);
+        if (userIdOpt.isPresent()) {
             return;
         }
 
@@ -110,7 +110,7 @@ public class UserSyncHandler extends ResponseHandler {
                     continue;
                 }
 
-                userSyncService.syncUser(newUser);
+                userSyncService.recordActivity(newUser);
 
                 log.info("New user added to chat {}: {} (ID: {})",
                         chatId,
@@ -129,10 +129,10 @@ public class UserSyncHandler extends ResponseHandler {
      */
     private void handleMessageSender(User user, Long chatId) {
         try {
-            Optional<TelegramUser> existingUser = userSyncService.findUserByUsername(user.getUserName());
+            Optional<Long> existingUserId = userSyncService.findUserIdByUsername(user.getUserName());
 
-            if (existingUser.isPresent() &&
-                    userSyncService.isTemporaryUserId(existingUser.get().getUserId())) {
+            if (existingUserId.isPresent() &&
+                    userSyncService.isTemporaryUserId(existingUserId.get())) {
 
                 TelegramUser updatedUser = userSyncService.updateTemporaryUser(
                         user.getUserName(), user.getId()
@@ -144,7 +144,7 @@ public class UserSyncHandler extends ResponseHandler {
                 }
             }
 
-            userSyncService.syncUser(user);
+            userSyncService.recordActivity(user);
 
         } catch (Exception e) {
             log.error("Failed to sync message sender {} in chat {}", user.getId(), chatId, e);
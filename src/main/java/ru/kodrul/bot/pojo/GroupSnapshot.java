@@ -0,0 +1,56 @@
+package ru.kodrul.bot.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.kodrul.bot.entity.ChatGroup;
+import ru.kodrul.bot.entity.GroupMember;
+import ru.kodrul.bot.entity.TelegramUser;
+
+import java.util.List;
+
+/**
+ * Неизменяемый снимок группы с участниками для горячих путей чтения (/tag, рандомизация, запланированные посты)
+ */
+@Data
+@AllArgsConstructor
+public class GroupSnapshot {
+
+    private final Long groupId;
+    private final Long chatId;
+    private final String name;
+    private final String description;
+    private final List<Member> members;
+
+    public static GroupSnapshot of(ChatGroup group) {
+        List<Member> members = group.getMembers().stream()
+                .map(GroupMember::getUser)
+                .map(Member::of)
+                .toList();
+        return new GroupSnapshot(group.getId(), group.getChatId(), group.getName(), group.getDescription(), members);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Member {
+
+        private final Long userId;
+        private final String userName;
+        /**
+         * "@username", если он есть, иначе "Имя Фамилия"
+         */
+        private final String displayName;
+
+        static Member of(TelegramUser user) {
+            String userName = user.getUserName();
+            String displayName;
+            if (userName != null && !userName.isEmpty()) {
+                displayName = "@" + userName;
+            } else {
+                displayName = String.format("%s %s",
+                        user.getFirstName() != null ? user.getFirstName() : "",
+                        user.getLastName() != null ? user.getLastName() : "").trim();
+            }
+            return new Member(user.getUserId(), userName, displayName);
+        }
+    }
+}
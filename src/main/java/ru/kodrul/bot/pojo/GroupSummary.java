@@ -0,0 +1,18 @@
+package ru.kodrul.bot.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Сводка по группе без загрузки участников: количества считаются в SQL
+ */
+@Data
+@AllArgsConstructor
+public class GroupSummary {
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final long memberCount;
+    private final long botCount;
+}
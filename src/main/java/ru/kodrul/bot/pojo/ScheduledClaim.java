@@ -0,0 +1,21 @@
+package ru.kodrul.bot.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Результат одного захвата наступивших расписаний
+ */
+@Data
+@AllArgsConstructor
+public class ScheduledClaim {
+
+    /**
+     * Сколько строк захвачено. Сравнивается с лимитом захвата: срабатываний может быть больше
+     * ({@link ru.kodrul.bot.entity.MisfirePolicy#FIRE_ALL_MISSED}) или меньше ({@link ru.kodrul.bot.entity.MisfirePolicy#SKIP})
+     */
+    private final int claimedCount;
+    private final List<ScheduledFire> fires;
+}
@@ -0,0 +1,25 @@
+package ru.kodrul.bot.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.kodrul.bot.entity.ScheduledPost;
+
+import java.time.LocalDateTime;
+
+/**
+ * Срабатывание расписания, захваченное этим узлом: next_fire_at в базе уже сдвинут на следующий слот
+ */
+@Data
+@AllArgsConstructor
+public class ScheduledFire {
+
+    private final ScheduledPost schedule;
+    /**
+     * Плановое время срабатывания, на которое пришёлся захват
+     */
+    private final LocalDateTime fireTime;
+    /**
+     * Срабатывание пропущено и отправляется по политике {@link ru.kodrul.bot.entity.MisfirePolicy}
+     */
+    private final boolean catchUp;
+}
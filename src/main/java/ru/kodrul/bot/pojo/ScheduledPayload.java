@@ -0,0 +1,46 @@
+package ru.kodrul.bot.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.telegram.telegrambots.meta.api.methods.PartialBotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import ru.kodrul.bot.entity.ScheduledPost;
+
+import java.util.Objects;
+
+/**
+ * Готовый к отправке запланированный пост. Запросы после построения не изменяются и переиспользуются
+ * при каждом срабатывании
+ */
+@Data
+@AllArgsConstructor
+public class ScheduledPayload {
+
+    /**
+     * Снимок группы, из которого собраны упоминания
+     */
+    private final GroupSnapshot group;
+    private final Long chatId;
+    private final Integer messageThreadId;
+    private final String messageText;
+    private final String imageUrl;
+    private final PartialBotApiMethod<Message> request;
+    /**
+     * Текст со ссылкой на изображение, если Telegram не смог отправить фото. Null у текстовых постов
+     */
+    private final SendMessage photoFallback;
+
+    /**
+     * Собран ли пост из этого снимка группы и текущих полей расписания. Снимок сравнивается по ссылке:
+     * при изменении состава группы или данных участников {@link ru.kodrul.bot.services.GroupSnapshotCache}
+     * отдаёт новый объект
+     */
+    public boolean isRenderedFrom(ScheduledPost schedule, GroupSnapshot snapshot) {
+        return group == snapshot
+                && Objects.equals(chatId, schedule.getChatId())
+                && Objects.equals(messageThreadId, schedule.getMessageThreadId())
+                && Objects.equals(messageText, schedule.getMessageText())
+                && Objects.equals(imageUrl, schedule.getImageUrl());
+    }
+}
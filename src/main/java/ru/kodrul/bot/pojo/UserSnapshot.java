@@ -0,0 +1,47 @@
+package ru.kodrul.bot.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.telegram.telegrambots.meta.api.objects.User;
+import ru.kodrul.bot.entity.TelegramUser;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Неизменяемый снимок пользователя для кэша
+ */
+@Data
+@AllArgsConstructor
+public class UserSnapshot {
+
+    private final Long userId;
+    private final String userName;
+    private final String firstName;
+    private final String lastName;
+    private final Boolean isBot;
+    /**
+     * Когда lastSeen пользователя последний раз записывался в базу
+     */
+    private final LocalDateTime lastSeenWrittenAt;
+
+    public static UserSnapshot of(User user, LocalDateTime lastSeenWrittenAt) {
+        return new UserSnapshot(user.getId(), user.getUserName(), user.getFirstName(), user.getLastName(),
+                user.getIsBot(), lastSeenWrittenAt);
+    }
+
+    public static UserSnapshot of(TelegramUser user) {
+        return new UserSnapshot(user.getUserId(), user.getUserName(), user.getFirstName(), user.getLastName(),
+                user.getIsBot(), user.getLastSeen());
+    }
+
+    /**
+     * Совпадают ли данные профиля (без учёта времени активности)
+     */
+    public boolean hasSameProfile(User user) {
+        return Objects.equals(userName, user.getUserName())
+                && Objects.equals(firstName, user.getFirstName())
+                && Objects.equals(lastName, user.getLastName())
+                && Objects.equals(isBot, user.getIsBot());
+    }
+}
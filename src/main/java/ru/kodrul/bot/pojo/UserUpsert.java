@@ -0,0 +1,37 @@
+package ru.kodrul.bot.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Накопленное изменение пользователя для пакетной записи в telegram_users
+ */
+@Data
+@AllArgsConstructor
+public class UserUpsert {
+
+    private final Long userId;
+    private final String userName;
+    private final String firstName;
+    private final String lastName;
+    private final Boolean isBot;
+    private final LocalDateTime firstSeen;
+    private final LocalDateTime lastSeen;
+    /**
+     * Изменились ли данные профиля (а не только время активности)
+     */
+    private final boolean profileChanged;
+
+    /**
+     * Объединяет два изменения одного пользователя: данные берутся из более свежего,
+     * firstSeen - самый ранний
+     */
+    public UserUpsert merge(UserUpsert other) {
+        UserUpsert newer = other.lastSeen.isAfter(lastSeen) ? other : this;
+        LocalDateTime earliest = other.firstSeen.isBefore(firstSeen) ? other.firstSeen : firstSeen;
+        return new UserUpsert(userId, newer.userName, newer.firstName, newer.lastName, newer.isBot,
+                earliest, newer.lastSeen, profileChanged || other.profileChanged);
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.kodrul.bot.entity.ChatGroup;
+import ru.kodrul.bot.pojo.GroupSummary;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,8 +15,22 @@ public interface ChatGroupRepository extends JpaRepository<ChatGroup, Long> {
 
     boolean existsByChatIdAndName(Long chatId, String name);
 
-    @Query("SELECT DISTINCT g FROM ChatGroup g LEFT JOIN FETCH g.members WHERE g.chatId = :chatId")
-    List<ChatGroup> findByChatIdWithMembers(@Param("chatId") Long chatId);
+    @Query("SELECT new ru.kodrul.bot.pojo.GroupSummary(g.id, g.name, g.description, " +
+                "COUNT(gm.id), " +
+                "SUM(CASE WHEN u.isBot = true THEN 1L ELSE 0L END)) " +
+            "FROM ChatGroup g " +
+            "LEFT JOIN g.members gm " +
+            "LEFT JOIN gm.user u " +
+            "WHERE g.chatId = :chatId " +
+            "GROUP BY g.id, g.name, g.description " +
+            "ORDER BY g.id")
+    List<GroupSummary> findSummariesByChatId(@Param("chatId") Long chatId);
+
+    @Query("SELECT g FROM ChatGroup g " +
+            "WHERE g.chatId = :chatId " +
+                "AND g.id IN (SELECT gm.group.id FROM GroupMember gm WHERE gm.user.userId = :userId) " +
+            "ORDER BY g.id")
+    List<ChatGroup> findByChatIdAndMemberUserId(@Param("chatId") Long chatId, @Param("userId") Long userId);
 
     @Query("SELECT DISTINCT g FROM ChatGroup g LEFT JOIN FETCH g.members WHERE g.chatId = :chatId AND g.name = :name")
     Optional<ChatGroup> findByChatIdAndNameWithMembers(@Param("chatId") Long chatId, @Param("name") String name);
@@ -0,0 +1,33 @@
+package ru.kodrul.bot.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+/**
+ * Именованные блокировки в таблице cluster_locks: блокировку берёт тот узел, чей upsert прошёл первым,
+ * остальные получают 0 обновлённых строк до истечения locked_until
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClusterLockRepository {
+
+    private static final String TRY_LOCK_SQL = "INSERT INTO cluster_locks (name, locked_until, locked_at, locked_by) " +
+            "VALUES (?, now() + make_interval(secs => ?), now(), ?) " +
+            "ON CONFLICT (name) DO UPDATE SET " +
+            "locked_until = EXCLUDED.locked_until, " +
+            "locked_at = EXCLUDED.locked_at, " +
+            "locked_by = EXCLUDED.locked_by " +
+            "WHERE cluster_locks.locked_until <= now()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return true, если блокировка свободна (или истекла) и теперь принадлежит {@code owner} на {@code lockFor}
+     */
+    public boolean tryLock(String name, Duration lockFor, String owner) {
+        return jdbcTemplate.update(TRY_LOCK_SQL, name, (double) lockFor.toSeconds(), owner) > 0;
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.kodrul.bot.entity.GroupMember;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface GroupMemberRepository extends JpaRepository<GroupMember, Long> {
@@ -19,4 +21,11 @@ public interface GroupMemberRepository extends JpaRepository<GroupMember, Long>
 
     @Query("SELECT gm FROM GroupMember gm JOIN FETCH gm.user WHERE gm.group.id = :groupId AND gm.user.userId = :userId")
     Optional<GroupMember> findByGroupIdAndUserIdWithUser(@Param("groupId") Long groupId, @Param("userId") Long userId);
+
+    @Query("SELECT gm.user.userId FROM GroupMember gm WHERE gm.group.id = :groupId AND gm.user.userId IN :userIds")
+    List<Long> findMemberUserIds(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("DELETE FROM GroupMember gm WHERE gm.group.id = :groupId AND gm.user.userId IN :userIds")
+    int deleteByGroupIdAndUserIdIn(@Param("groupId") Long groupId, @Param("userIds") Collection<Long> userIds);
 }
\ No newline at end of file
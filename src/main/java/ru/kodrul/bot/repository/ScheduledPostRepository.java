@@ -1,17 +1,32 @@
 package ru.kodrul.bot.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.kodrul.bot.entity.ScheduledPost;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ScheduledPostRepository extends JpaRepository<ScheduledPost, Long> {
 
     List<ScheduledPost> findByChatIdAndIsActiveTrue(Long chatId);
 
-    List<ScheduledPost> findByIsActiveTrue();
+    List<ScheduledPost> findByIsActiveTrueAndNextFireAtIsNull();
+
+    /**
+     * Наступившие срабатывания по частичному индексу ix_scheduled_posts_next_fire_at. Строки, которые уже захватывает
+     * другой узел, пропускаются, а не ожидаются
+     */
+    @Query(value = "SELECT * FROM scheduled_posts " +
+                "WHERE is_active AND next_fire_at <= :now " +
+                "ORDER BY next_fire_at " +
+                "LIMIT :limit " +
+                "FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<ScheduledPost> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
 
     @Query("SELECT s FROM ScheduledPost s " +
                 "WHERE s.chatId = :chatId " +
@@ -49,4 +64,8 @@ public interface ScheduledPostRepository extends JpaRepository<ScheduledPost, Lo
             @Param("chatId") Long chatId,
             @Param("groupName") String groupName,
             @Param("threadId") Integer threadId);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("UPDATE ScheduledPost s SET s.lastSent = :sentAt WHERE s.id IN :ids")
+    int updateLastSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+}
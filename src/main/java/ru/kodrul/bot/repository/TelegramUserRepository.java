@@ -7,10 +7,11 @@ import org.springframework.data.repository.query.Param;
 import ru.kodrul.bot.entity.TelegramUser;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface TelegramUserRepository extends JpaRepository<TelegramUser, Long> {
+public interface TelegramUserRepository extends JpaRepository<TelegramUser, Long>, TelegramUserRepositoryCustom {
 
     Optional<TelegramUser> findByUserId(Long userId);
 
@@ -23,6 +24,11 @@ public interface TelegramUserRepository extends JpaRepository<TelegramUser, Long
 
     Optional<TelegramUser> findByUserName(String userName);
 
+    @Query("SELECT u FROM TelegramUser u WHERE u.userId IN :userIds OR u.userName IN :userNames")
+    List<TelegramUser> findByUserIdInOrUserNameIn(
+            @Param("userIds") Collection<Long> userIds,
+            @Param("userNames") Collection<String> userNames);
+
     @Query("SELECT DISTINCT gm.group.chatId FROM GroupMember gm")
     List<Long> findDistinctChatIds();
 
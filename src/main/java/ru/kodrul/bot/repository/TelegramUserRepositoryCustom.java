@@ -0,0 +1,15 @@
+package ru.kodrul.bot.repository;
+
+import ru.kodrul.bot.pojo.UserUpsert;
+
+import java.util.Collection;
+
+public interface TelegramUserRepositoryCustom {
+
+    /**
+     * Пакетный INSERT ... ON CONFLICT (user_id) DO UPDATE. Идентификаторы пользователей в пакете должны быть уникальны
+     *
+     * @return количество вставленных или обновлённых строк
+     */
+    int upsertAll(Collection<UserUpsert> users);
+}
@@ -0,0 +1,69 @@
+package ru.kodrul.bot.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.kodrul.bot.pojo.UserUpsert;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class TelegramUserRepositoryImpl implements TelegramUserRepositoryCustom {
+
+    /**
+     * 7 параметров на строку: 500 строк укладываются в лимит параметров PostgreSQL с большим запасом
+     */
+    private static final int UPSERT_BATCH_SIZE = 500;
+
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO telegram_users (user_id, user_name, first_name, last_name, is_bot, first_seen, last_seen) VALUES ";
+    private static final String UPSERT_ROW = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_SUFFIX = " ON CONFLICT (user_id) DO UPDATE SET " +
+            "user_name = EXCLUDED.user_name, " +
+            "first_name = EXCLUDED.first_name, " +
+            "last_name = EXCLUDED.last_name, " +
+            "is_bot = EXCLUDED.is_bot, " +
+            "last_seen = GREATEST(telegram_users.last_seen, EXCLUDED.last_seen)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int upsertAll(Collection<UserUpsert> users) {
+        List<UserUpsert> rows = List.copyOf(users);
+        int updated = 0;
+        for (int from = 0; from < rows.size(); from += UPSERT_BATCH_SIZE) {
+            List<UserUpsert> batch = rows.subList(from, Math.min(from + UPSERT_BATCH_SIZE, rows.size()));
+            updated += jdbcTemplate.update(buildUpsertSql(batch.size()), toParameters(batch));
+        }
+        return updated;
+    }
+
+    private String buildUpsertSql(int rowCount) {
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + rowCount * (UPSERT_ROW.length() + 2)
+                + UPSERT_SUFFIX.length());
+        sql.append(UPSERT_PREFIX);
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(UPSERT_ROW);
+        }
+        return sql.append(UPSERT_SUFFIX).toString();
+    }
+
+    private Object[] toParameters(List<UserUpsert> batch) {
+        List<Object> parameters = new ArrayList<>(batch.size() * 7);
+        for (UserUpsert user : batch) {
+            parameters.add(user.getUserId());
+            parameters.add(user.getUserName());
+            parameters.add(user.getFirstName());
+            parameters.add(user.getLastName());
+            parameters.add(Boolean.TRUE.equals(user.getIsBot()));
+            parameters.add(Timestamp.valueOf(user.getFirstSeen()));
+            parameters.add(Timestamp.valueOf(user.getLastSeen()));
+        }
+        return parameters.toArray();
+    }
+}
@@ -0,0 +1,201 @@
+package ru.kodrul.bot.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Рассылка сбросов локальных кэшей между экземплярами бота через PostgreSQL LISTEN/NOTIFY.
+ * <p>
+ * Сообщение отправляется после коммита транзакции, в которой изменились данные, и доставляется всем узлам,
+ * слушающим канал; свои сообщения узел пропускает - он уже сбросил кэш сам. Уведомления не хранятся:
+ * пока у слушателя нет соединения, они теряются, поэтому после каждого (пере)подключения узел сбрасывает
+ * все подписанные кэши целиком
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CacheInvalidationBus {
+
+    /**
+     * Изменились данные пользователей (username, имя, удаление): аргумент - userId через запятую
+     */
+    public static final String USERS_CHANGED = "users";
+
+    private static final String CHANNEL = "kodrul_cache_invalidation";
+
+    /**
+     * Сброс всех кэшей: отправляется вместо сообщения, не помещающегося в лимит NOTIFY (8000 байт)
+     */
+    private static final String RESYNC = "resync";
+
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcConnectionDetails connectionDetails;
+    private final ClusterLockService clusterLockService;
+
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+    private final List<Runnable> resyncHandlers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    /**
+     * Подписка на сообщения {@code topic} от других узлов
+     */
+    public void subscribe(String topic, Consumer<String> handler) {
+        handlers.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /**
+     * Подписка на полный сброс: после переподключения слушателя и при слишком длинном сообщении
+     */
+    public void subscribeResync(Runnable handler) {
+        resyncHandlers.add(handler);
+    }
+
+    /**
+     * Сообщает остальным узлам о сбросе. Внутри транзакции отправка откладывается до коммита,
+     * при откате сообщение не отправляется
+     */
+    public void publish(String topic, String argument) {
+        String payload = clusterLockService.getNodeId() + "|" + topic + "|" + argument;
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            payload = clusterLockService.getNodeId() + "|" + RESYNC + "|";
+        }
+
+        String message = payload;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(message);
+                }
+            });
+        } else {
+            send(message);
+        }
+    }
+
+    private void send(String payload) {
+        // После коммита ресурсы завершённой транзакции ещё привязаны к потоку, поэтому NOTIFY идёт в новой
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.executeWithoutResult(status ->
+                    jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload));
+        } catch (Exception e) {
+            log.warn("Failed to publish cache invalidation {}", payload, e);
+        }
+    }
+
+    /**
+     * Запускаем слушателя на отдельном соединении вне пула: LISTEN держит соединение всё время работы
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::runListener, "CacheInvalidationListener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    private void runListener() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(connectionDetails.getJdbcUrl(),
+                    connectionDetails.getUsername(), connectionDetails.getPassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Пока слушателя не было, сообщения других узлов могли быть пропущены
+                resync();
+                log.info("Listening for cache invalidations on {}", CHANNEL);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener lost connection, reconnecting in {} ms", RECONNECT_DELAY_MILLIS, e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3) {
+            log.warn("Malformed cache invalidation: {}", payload);
+            return;
+        }
+        if (parts[0].equals(clusterLockService.getNodeId())) {
+            return;
+        }
+        if (RESYNC.equals(parts[1])) {
+            resync();
+            return;
+        }
+
+        for (Consumer<String> handler : handlers.getOrDefault(parts[1], List.of())) {
+            try {
+                handler.accept(parts[2]);
+            } catch (Exception e) {
+                log.error("Failed to apply cache invalidation {}", payload, e);
+            }
+        }
+    }
+
+    private void resync() {
+        resyncHandlers.forEach(Runnable::run);
+    }
+}
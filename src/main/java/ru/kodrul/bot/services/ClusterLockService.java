@@ -0,0 +1,41 @@
+package ru.kodrul.bot.services;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.kodrul.bot.repository.ClusterLockRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+/**
+ * Координация фоновых задач между экземплярами бота через PostgreSQL.
+ * Блокировка не снимается по завершении задачи, а живёт до истечения срока: так узел, запустившийся по cron
+ * на пару секунд позже, не выполнит ту же задачу повторно
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClusterLockService {
+
+    private final ClusterLockRepository clusterLockRepository;
+
+    @Getter
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * Пытается взять блокировку {@code name} на {@code lockFor}. Блокировка фиксируется в отдельной транзакции,
+     * чтобы другие узлы увидели её сразу, а не после завершения самой задачи
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean tryLock(String name, Duration lockFor) {
+        boolean locked = clusterLockRepository.tryLock(name, lockFor, nodeId);
+        if (!locked) {
+            log.debug("Lock {} is held by another node, skipping", name);
+        }
+        return locked;
+    }
+}
@@ -5,12 +5,31 @@ import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Service;
 import ru.kodrul.bot.pojo.CronParseResult;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @Service
 public class CronService {
 
+    private static final int CRON_CACHE_MAX_SIZE = 1024;
+
+    /**
+     * Кэш разобранных cron-выражений. Большинство расписаний используют одни и те же выражения,
+     * поэтому разбор выполняется один раз на выражение, а не на каждую проверку
+     */
+    private final Map<String, CronExpression> cronCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CronExpression> eldest) {
+            return size() > CRON_CACHE_MAX_SIZE;
+        }
+    };
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
     /**
      * Парсит пользовательский ввод в cron-выражение
      */
@@ -44,10 +63,13 @@ public class CronService {
      */
     private boolean isValidCronExpression(String cronExpression) {
         try {
-            CronExpression.parse(cronExpression);
-
             String[] parts = cronExpression.split("\\s+");
-            return parts.length == 6;
+            if (parts.length != 6) {
+                return false;
+            }
+
+            getCronExpression(cronExpression);
+            return true;
         } catch (IllegalArgumentException e) {
             log.debug("Invalid cron expression: {}", cronExpression);
             return false;
@@ -173,7 +195,7 @@ public class CronService {
      */
     public boolean shouldExecute(String cronExpression, LocalDateTime dateTime) {
         try {
-            CronExpression parsedExpression = CronExpression.parse(cronExpression);
+            CronExpression parsedExpression = getCronExpression(cronExpression);
             // CronExpression в спринговой библиотеке не имеет метода isSatisfiedBy как в либе Quartz
             // поэтому мы вычисляем следующее время выполнения, которое было бы до текущего момента. Для этого берём
             // текущее время, отнимаем от него 1 наносекунду и находим следующее время выполнения cron с помощью next()
@@ -185,4 +207,89 @@ public class CronService {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Вычисляет ближайшее время выполнения расписания строго после указанного момента.
+     * Возвращает null, если выражение некорректно или следующего срабатывания нет
+     */
+    public LocalDateTime nextExecution(String cronExpression, LocalDateTime after) {
+        try {
+            return getCronExpression(cronExpression).next(after);
+        } catch (Exception e) {
+            log.error("Error calculating next execution for cron expression: {}", cronExpression, e);
+            return null;
+        }
+    }
+
+    /**
+     * Вычисляет последнее срабатывание расписания строго до {@code before} и не раньше {@code notBefore}.
+     * Возвращает null, если такого срабатывания нет или выражение некорректно.
+     * <p>
+     * В {@link CronExpression} нет поиска назад, поэтому бинарным поиском ищется наибольшая точка p, для которой
+     * next(p) раньше {@code before}: next не убывает по p, а срабатывания приходятся на целые секунды,
+     * так что поиск занимает O(log) вызовов next от длины диапазона, а не перебор всех срабатываний в нём
+     */
+    public LocalDateTime previousExecution(String cronExpression, LocalDateTime before, LocalDateTime notBefore) {
+        try {
+            CronExpression expression = getCronExpression(cronExpression);
+            LocalDateTime low = notBefore.minusNanos(1);
+            LocalDateTime first = expression.next(low);
+            if (first == null || !first.isBefore(before)) {
+                return null;
+            }
+
+            // Инвариант: next(low) < before <= next(high)
+            LocalDateTime high = before.minusNanos(1);
+            while (Duration.between(low, high).getSeconds() >= 1) {
+                LocalDateTime middle = low.plusNanos(Duration.between(low, high).toNanos() / 2);
+                LocalDateTime candidate = expression.next(middle);
+                if (candidate != null && candidate.isBefore(before)) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            // В полуинтервал (low, high] короче секунды попадает не больше одного срабатывания
+            return expression.next(low);
+        } catch (Exception e) {
+            log.error("Error calculating previous execution for cron expression: {}", cronExpression, e);
+            return null;
+        }
+    }
+
+    /**
+     * Возвращает разобранное cron-выражение из кэша, разбирая его только при первом обращении
+     *
+     * @throws IllegalArgumentException если выражение некорректно (такие выражения не кэшируются)
+     */
+    public CronExpression getCronExpression(String cronExpression) {
+        synchronized (cronCache) {
+            CronExpression cached = cronCache.get(cronExpression);
+            if (cached != null) {
+                cacheHits.increment();
+                return cached;
+            }
+        }
+
+        cacheMisses.increment();
+        CronExpression parsed = CronExpression.parse(cronExpression);
+        synchronized (cronCache) {
+            cronCache.putIfAbsent(cronExpression, parsed);
+        }
+        return parsed;
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public int getCacheSize() {
+        synchronized (cronCache) {
+            return cronCache.size();
+        }
+    }
+}
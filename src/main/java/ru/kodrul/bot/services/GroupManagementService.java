@@ -10,18 +10,24 @@ import ru.kodrul.bot.entity.TelegramUser;
 import ru.kodrul.bot.exceptions.GroupAlreadyExistsException;
 import ru.kodrul.bot.exceptions.UserAlreadyInGroupException;
 import ru.kodrul.bot.exceptions.UserNotFoundException;
+import ru.kodrul.bot.pojo.GroupSnapshot;
+import ru.kodrul.bot.pojo.GroupSummary;
 import ru.kodrul.bot.repository.ChatGroupRepository;
 import ru.kodrul.bot.repository.GroupMemberRepository;
 import ru.kodrul.bot.repository.TelegramUserRepository;
 import ru.kodrul.bot.utils.EscapeHelper;
+import ru.kodrul.bot.utils.GroupFormatHelper;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -31,6 +37,8 @@ public class GroupManagementService {
     private final ChatGroupRepository groupRepository;
     private final GroupMemberRepository memberRepository;
     private final TelegramUserRepository userRepository;
+    private final UserWriteBehindBuffer userWriteBehindBuffer;
+    private final GroupSnapshotCache groupSnapshotCache;
 
     @Transactional
     public ChatGroup createGroup(String name, String description, Long chatId, String chatTitle, Long createdBy) {
@@ -45,6 +53,7 @@ public class GroupManagementService {
         group.setChatTitle(chatTitle);
         group.setCreatedBy(createdBy);
 
+        groupSnapshotCache.evict(chatId, name);
         return groupRepository.save(group);
     }
 
@@ -57,6 +66,7 @@ public class GroupManagementService {
         ChatGroup group = groupRepository.findById(groupId)
                 .orElseThrow(() -> new IllegalArgumentException("Группа не найдена"));
 
+        userWriteBehindBuffer.ensureWritten(userId);
         TelegramUser user = userRepository.findByUserId(userId)
                 .orElseThrow(() -> new UserNotFoundException(userId));
 
@@ -65,12 +75,67 @@ public class GroupManagementService {
         member.setUser(user);
 
         memberRepository.save(member);
+        groupSnapshotCache.evictGroup(groupId);
         log.info("User {} added to group {}", userId, groupId);
     }
 
+    /**
+     * Пакетное добавление пользователей в группу: одна выборка существующих участников и одна пакетная вставка
+     *
+     * @return пользователи, которые уже состояли в группе и не были добавлены повторно
+     */
+    @Transactional
+    public List<TelegramUser> addUsersToGroup(ChatGroup group, Collection<TelegramUser> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+
+        Set<Long> existing = new HashSet<>(memberRepository.findMemberUserIds(group.getId(),
+                users.stream().map(TelegramUser::getUserId).toList()));
+
+        List<TelegramUser> alreadyInGroup = new ArrayList<>();
+        List<GroupMember> newMembers = new ArrayList<>();
+        for (TelegramUser user : users) {
+            if (existing.contains(user.getUserId())) {
+                alreadyInGroup.add(user);
+                continue;
+            }
+            GroupMember member = new GroupMember();
+            member.setGroup(group);
+            member.setUser(user);
+            newMembers.add(member);
+        }
+
+        memberRepository.saveAll(newMembers);
+        groupSnapshotCache.evictGroup(group.getId());
+        log.info("{} users added to group {}", newMembers.size(), group.getId());
+        return alreadyInGroup;
+    }
+
+    /**
+     * Пакетное удаление пользователей из группы одним запросом
+     *
+     * @return userId пользователей, которые состояли в группе и были удалены
+     */
+    @Transactional
+    public Set<Long> removeUsersFromGroup(Long groupId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<Long> members = new HashSet<>(memberRepository.findMemberUserIds(groupId, userIds));
+        if (!members.isEmpty()) {
+            memberRepository.deleteByGroupIdAndUserIdIn(groupId, members);
+            groupSnapshotCache.evictGroup(groupId);
+            log.info("{} users removed from group {}", members.size(), groupId);
+        }
+        return members;
+    }
+
     @Transactional
     public void deleteGroup(Long groupId) {
         groupRepository.deleteById(groupId);
+        groupSnapshotCache.evictGroup(groupId);
     }
 
     @Transactional(readOnly = true)
@@ -78,6 +143,14 @@ public class GroupManagementService {
         return groupRepository.findByChatIdAndNameWithMembersAndUsers(chatId, name);
     }
 
+    /**
+     * Снимок группы с участниками из кэша. На попадании в кэш к базе не обращается
+     */
+    public Optional<GroupSnapshot> getGroupSnapshot(Long chatId, String name) {
+        return groupSnapshotCache.getOrLoad(chatId, name,
+                () -> groupRepository.findByChatIdAndNameWithMembersAndUsers(chatId, name).map(GroupSnapshot::of));
+    }
+
     @Transactional(readOnly = true)
     public List<GroupMember> getGroupMembersWithUsers(Long groupId) {
         Optional<ChatGroup> groupOpt = groupRepository.findByIdWithMembersAndUsers(groupId);
@@ -91,6 +164,7 @@ public class GroupManagementService {
         }
 
         memberRepository.deleteByGroupIdAndUserId(groupId, userId);
+        groupSnapshotCache.evictGroup(groupId);
         log.info("User {} removed from group {}", userId, groupId);
     }
 
@@ -99,99 +173,85 @@ public class GroupManagementService {
         return memberRepository.findByGroupIdAndUserIdWithUser(groupId, userId).isPresent();
     }
 
-    public List<ChatGroup> getChatGroups(Long chatId) {
-        return groupRepository.findByChatIdWithMembers(chatId);
+    /**
+     * Сводки по группам чата (название, описание, количество участников и ботов) одним запросом
+     */
+    public List<GroupSummary> getGroupSummaries(Long chatId) {
+        return groupRepository.findSummariesByChatId(chatId);
     }
 
     public Optional<ChatGroup> getGroupByName(Long chatId, String name) {
         return groupRepository.findByChatIdAndName(chatId, name);
     }
 
+    public String formatGroupInfo(GroupSummary group) {
+        return GroupFormatHelper.formatGroupInfo(group.getId(), group.getName(), group.getDescription(), group.getMemberCount());
+    }
+
+    /**
+     * Тот же формат, что и для {@link GroupSummary}: количество участников берётся из загруженной коллекции,
+     * количество ботов в карточке не выводится, поэтому пользователи участников не загружаются
+     */
     public String formatGroupInfo(ChatGroup group) {
-        return String.format(
-                "📋 Группа: *%s*%s\n👥 Участников: %d\n🆔 ID: %d",
-                group.getName(),
-                group.getDescription() != null ? "\n📝 Описание: " + group.getDescription() : "",
-                group.getMembers().size(),
-                group.getId()
-        );
+        return GroupFormatHelper.formatGroupInfo(group.getId(), group.getName(), group.getDescription(), group.getMembers().size());
     }
 
     /**
      * Получение статистики по группам в чате
      */
     public Map<String, Object> getGroupsStatistics(Long chatId) {
-        List<ChatGroup> groups = groupRepository.findByChatIdWithMembers(chatId);
+        List<GroupSummary> groups = groupRepository.findSummariesByChatId(chatId);
 
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalGroups", groups.size());
 
-        int totalMembers = groups.stream()
-                .mapToInt(group -> group.getMembers().size())
+        long totalMembers = groups.stream()
+                .mapToLong(GroupSummary::getMemberCount)
                 .sum();
         stats.put("totalMembers", totalMembers);
 
         // Статистика по ботам
         long totalBots = groups.stream()
-                .flatMap(group -> group.getMembers().stream())
-                .filter(member -> Boolean.TRUE.equals(member.getUser().getIsBot()))
-                .count();
+                .mapToLong(GroupSummary::getBotCount)
+                .sum();
         stats.put("totalBots", totalBots);
 
         // Самая большая и самая маленькая группа
         if (!groups.isEmpty()) {
-            ChatGroup largestGroup = groups.stream()
-                    .max(Comparator.comparingInt(group -> group.getMembers().size()))
+            GroupSummary largestGroup = groups.stream()
+                    .max(Comparator.comparingLong(GroupSummary::getMemberCount))
                     .orElse(groups.get(0));
-            ChatGroup smallestGroup = groups.stream()
-                    .min(Comparator.comparingInt(group -> group.getMembers().size()))
+            GroupSummary smallestGroup = groups.stream()
+                    .min(Comparator.comparingLong(GroupSummary::getMemberCount))
                     .orElse(groups.get(0));
 
             stats.put("largestGroup", largestGroup.getName());
-            stats.put("largestGroupSize", largestGroup.getMembers().size());
+            stats.put("largestGroupSize", largestGroup.getMemberCount());
             stats.put("smallestGroup", smallestGroup.getName());
-            stats.put("smallestGroupSize", smallestGroup.getMembers().size());
+            stats.put("smallestGroupSize", smallestGroup.getMemberCount());
         }
 
         return stats;
     }
 
     /**
-     * Поиск групп по участнику
+     * Поиск групп по участнику (индекс group_members(user_id, group_id)). Участники групп не загружаются
      */
     public List<ChatGroup> findGroupsByMember(Long chatId, Long userId) {
-        return groupRepository.findByChatIdWithMembers(chatId).stream()
-                .filter(group -> group.getMembers().stream()
-                        .anyMatch(member -> member.getUser().getUserId().equals(userId)))
-                .collect(Collectors.toList());
+        return groupRepository.findByChatIdAndMemberUserId(chatId, userId);
     }
 
     public boolean isUserInGroup(Long groupId, Long userId) {
         return memberRepository.existsByGroupIdAndUserId(groupId, userId);
     }
 
-    public String getTagUsersMessage(ChatGroup chatGroup) {
-        try {
-            List<GroupMember> members = chatGroup.getMembers();
-
-            if (members.isEmpty()) {
-                log.warn("Group {} is empty, skipping post", chatGroup.getName());
-                return null;
-            }
-
-            StringBuilder message = new StringBuilder();
-
-            for (GroupMember member : members) {
-                String username = member.getUser().getUserName();
-                if (username != null && !username.isEmpty()) {
-                    message.append("@").append(username).append(" ");
-                }
-            }
-            return message.toString();
-
-        } catch (Exception e) {
-            throw new RuntimeException("Error sending scheduled message: " + e.getMessage(), e);
+    public String getTagUsersMessage(GroupSnapshot group) {
+        if (group.getMembers().isEmpty()) {
+            log.warn("Group {} is empty, skipping post", group.getName());
+            return null;
         }
+
+        return GroupFormatHelper.appendMentions(new StringBuilder(), group.getMembers()).toString();
     }
 
     public String formatGroupInfoWithMembers(ChatGroup group) {
@@ -0,0 +1,224 @@
+package ru.kodrul.bot.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.kodrul.bot.pojo.GroupSnapshot;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through кэш снимков групп по (chatId, название).
+ * <p>
+ * Кроме основного ключа ведутся обратные индексы: groupId → ключ и userId → ключи групп, в которых состоит
+ * пользователь. По ним кэш точечно сбрасывается при изменении группы, её состава или данных пользователя.
+ * Сброс выполняется сразу и повторно после коммита транзакции, чтобы параллельное чтение не закэшировало
+ * незакоммиченное состояние. Каждый сброс рассылается остальным узлам через {@link CacheInvalidationBus}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GroupSnapshotCache {
+
+    private static final int GROUP_CACHE_MAX_SIZE = 2048;
+
+    private static final String GROUP_CHANGED = "group";
+    private static final String GROUP_ID_CHANGED = "group-id";
+
+    /**
+     * Столько userId отправляется одним сообщением, чтобы оно уложилось в лимит NOTIFY
+     */
+    private static final int USERS_PER_MESSAGE = 300;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Map<Key, GroupSnapshot> snapshots = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, GroupSnapshot> eldest) {
+            if (size() > GROUP_CACHE_MAX_SIZE) {
+                unindex(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<Long, Key> keyByGroupId = new HashMap<>();
+    private final Map<Long, Set<Key>> keysByUserId = new HashMap<>();
+
+    /**
+     * Увеличивается при каждом сбросе: загрузка, начатая до сброса, не попадает в кэш
+     */
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    public void subscribe() {
+        invalidationBus.subscribe(GROUP_CHANGED, argument -> {
+            int separator = argument.indexOf(':');
+            Key key = new Key(Long.valueOf(argument.substring(0, separator)), argument.substring(separator + 1));
+            runLocked(() -> evictKey(key));
+        });
+        invalidationBus.subscribe(GROUP_ID_CHANGED, argument -> runLocked(() -> evictGroupId(Long.valueOf(argument))));
+        invalidationBus.subscribe(CacheInvalidationBus.USERS_CHANGED, argument -> runLocked(() ->
+                evictUserIds(Arrays.stream(argument.split(",")).map(Long::valueOf).toList())));
+        invalidationBus.subscribeResync(this::clear);
+    }
+
+    /**
+     * Возвращает снимок из кэша, а при его отсутствии загружает через {@code loader}
+     */
+    public Optional<GroupSnapshot> getOrLoad(Long chatId, String name, Supplier<Optional<GroupSnapshot>> loader) {
+        Key key = new Key(chatId, name);
+        long loadGeneration;
+        synchronized (this) {
+            GroupSnapshot cached = snapshots.get(key);
+            if (cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            misses.increment();
+            loadGeneration = generation;
+        }
+
+        Optional<GroupSnapshot> loaded = loader.get();
+        loaded.ifPresent(snapshot -> put(key, snapshot, loadGeneration));
+        return loaded;
+    }
+
+    private synchronized void put(Key key, GroupSnapshot snapshot, long loadGeneration) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        GroupSnapshot previous = snapshots.put(key, snapshot);
+        if (previous != null) {
+            unindex(key, previous);
+        }
+        keyByGroupId.put(snapshot.getGroupId(), key);
+        snapshot.getMembers().forEach(member ->
+                keysByUserId.computeIfAbsent(member.getUserId(), userId -> new HashSet<>()).add(key));
+    }
+
+    public void evict(Long chatId, String name) {
+        invalidate(() -> evictKey(new Key(chatId, name)));
+        invalidationBus.publish(GROUP_CHANGED, chatId + ":" + name);
+    }
+
+    public void evictGroup(Long groupId) {
+        invalidate(() -> evictGroupId(groupId));
+        invalidationBus.publish(GROUP_ID_CHANGED, String.valueOf(groupId));
+    }
+
+    /**
+     * Сбрасывает группы, в которых состоят пользователи (смена username/имени, удаление пользователя).
+     * Другие узлы по этому сообщению сбрасывают ещё и снимки самих пользователей в {@link TelegramUserCache}
+     */
+    public void evictUsers(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        invalidate(() -> evictUserIds(userIds));
+        List<Long> ids = List.copyOf(userIds);
+        for (int from = 0; from < ids.size(); from += USERS_PER_MESSAGE) {
+            String chunk = ids.subList(from, Math.min(from + USERS_PER_MESSAGE, ids.size())).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            invalidationBus.publish(CacheInvalidationBus.USERS_CHANGED, chunk);
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        snapshots.clear();
+        keyByGroupId.clear();
+        keysByUserId.clear();
+    }
+
+    private void invalidate(Runnable eviction) {
+        runLocked(eviction);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    runLocked(eviction);
+                }
+            });
+        }
+    }
+
+    private synchronized void runLocked(Runnable eviction) {
+        generation++;
+        eviction.run();
+    }
+
+    private void evictGroupId(Long groupId) {
+        Key key = keyByGroupId.get(groupId);
+        if (key != null) {
+            evictKey(key);
+        }
+    }
+
+    private void evictUserIds(Collection<Long> userIds) {
+        userIds.forEach(userId -> {
+            Set<Key> keys = keysByUserId.get(userId);
+            if (keys != null) {
+                Set.copyOf(keys).forEach(this::evictKey);
+            }
+        });
+    }
+
+    private void evictKey(Key key) {
+        GroupSnapshot removed = snapshots.remove(key);
+        if (removed != null) {
+            unindex(key, removed);
+        }
+    }
+
+    private void unindex(Key key, GroupSnapshot snapshot) {
+        keyByGroupId.remove(snapshot.getGroupId(), key);
+        snapshot.getMembers().forEach(member -> {
+            Set<Key> keys = keysByUserId.get(member.getUserId());
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByUserId.remove(member.getUserId());
+                }
+            }
+        });
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int getSize() {
+        return snapshots.size();
+    }
+
+    @Data
+    private static class Key {
+
+        private final Long chatId;
+        private final String name;
+    }
+}
@@ -2,21 +2,22 @@ package ru.kodrul.bot.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.telegram.abilitybots.api.bot.AbilityBot;
 import org.telegram.abilitybots.api.objects.MessageContext;
 import org.telegram.telegrambots.meta.api.objects.MessageEntity;
 import ru.kodrul.bot.entity.ChatGroup;
-import ru.kodrul.bot.entity.GroupMember;
 import ru.kodrul.bot.entity.TelegramUser;
 import ru.kodrul.bot.parser.MentionParser;
 import ru.kodrul.bot.pojo.OperationResult;
 import ru.kodrul.bot.pojo.ParsedMention;
+import ru.kodrul.bot.utils.Constants;
 import ru.kodrul.bot.utils.EscapeHelper;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -26,11 +27,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MemberManagementService {
 
-    @Lazy
-    private final AbilityBot bot;
     private final GroupManagementService groupService;
     private final UserSyncService userSyncService;
     private final MentionParser mentionParser;
+    private final SendService sendService;
 
     @Transactional
     public void handleMemberOperation(MessageContext ctx, boolean isAdd, boolean isTrustedCommand) {
@@ -41,7 +41,7 @@ public class MemberManagementService {
             String usage = isAdd ?
                     "Использование: /addmembers <имя_группы> @user1 @user2 ..." :
                     "Использование: /removemembers <имя_группы> @user1 @user2 ...";
-            bot.silent().send(usage, ctx.chatId());
+            sendService.sendToChat(ctx.chatId(), usage);
             return;
         }
 
@@ -56,7 +56,7 @@ public class MemberManagementService {
         try {
             Optional<ChatGroup> groupOpt = groupService.getGroupByName(chatId, groupName);
             if (groupOpt.isEmpty()) {
-                bot.silent().send("❌ Группа '" + groupName + "' не найдена в этом чате", ctx.chatId());
+                sendService.sendToChat(ctx.chatId(), "❌ Группа '" + groupName + "' не найдена в этом чате");
                 return;
             }
 
@@ -70,104 +70,125 @@ public class MemberManagementService {
             );
 
             if (mentions.isEmpty()) {
-                bot.silent().send("❌ Не найдено упоминаний пользователей. Упомяните пользователей через @username", ctx.chatId());
+                sendService.sendToChat(ctx.chatId(), "❌ Не найдено упоминаний пользователей. Упомяните пользователей через @username");
                 return;
             }
 
             OperationResult result = isAdd ?
-                    addMembersToGroup(group, mentions, chatId) :
+                    addMembersToGroup(group, mentions) :
                     removeMembersFromGroup(group, mentions);
 
             sendOperationResult(ctx, result, groupName, isAdd);
 
         } catch (Exception e) {
             log.error("Error handling member operation", e);
-            bot.silent().send("❌ Ошибка при обработке операции: " + e.getMessage(), ctx.chatId());
+            sendService.sendToChat(ctx.chatId(), "❌ Ошибка при обработке операции: " + e.getMessage());
         }
     }
 
-    private OperationResult addMembersToGroup(ChatGroup group, List<ParsedMention> mentions, Long chatId) {
+    /**
+     * Добавление выполняется пакетно: пользователи ищутся одним запросом, существующие участники - другим,
+     * новые участники вставляются одной пакетной вставкой
+     */
+    private OperationResult addMembersToGroup(ChatGroup group, List<ParsedMention> mentions) {
         OperationResult result = new OperationResult();
+        ResolvedMentions resolved = resolveMentions(mentions);
 
+        Map<Long, TelegramUser> users = new LinkedHashMap<>();
         for (ParsedMention mention : mentions) {
-            try {
-                if (mention.getUserId() != null) {
-                    addUserToGroup(group, mention.getUserId(), result);
-                } else {
-                    addUserByUsername(group, mention.getUsername(), chatId, result);
-                }
-            } catch (Exception e) {
-                result.addFailed(mention.getText(), e.getMessage());
-                log.warn("Failed to add user {}: {}", mention.getText(), e.getMessage());
+            TelegramUser user = resolved.find(mention);
+            if (user == null) {
+                result.addFailed("@" + mention.getUsername(), "Пользователь не найден в базе");
+            } else {
+                users.putIfAbsent(user.getUserId(), user);
             }
         }
 
-        return result;
-    }
-
-    private void addUserToGroup(ChatGroup group, Long userId, OperationResult result) {
         try {
-            TelegramUser user = userSyncService.syncUserWithChat(userId, group.getChatId());
-            groupService.addUserToGroup(group.getId(), userId);
-
-            String userName = user.getUserName() != null ?
-                    "@" + user.getUserName() :
-                    user.getFirstName() + " " + user.getLastName();
-            result.addSuccess(userName);
-
-        } catch (IllegalArgumentException e) {
-            if (e.getMessage().contains("уже в группе")) {
-                result.addSkipped("Пользователь уже в группе");
-            } else {
-                throw e;
+            Set<Long> alreadyInGroup = groupService.addUsersToGroup(group, users.values()).stream()
+                    .map(TelegramUser::getUserId)
+                    .collect(Collectors.toSet());
+            for (TelegramUser user : users.values()) {
+                if (alreadyInGroup.contains(user.getUserId())) {
+                    result.addSkipped("Пользователь уже в группе");
+                } else {
+                    result.addSuccess(formatUserName(user));
+                }
             }
+        } catch (Exception e) {
+            log.warn("Failed to add users to group {}: {}", group.getId(), e.getMessage());
+            users.values().forEach(user -> result.addFailed(formatUserName(user), e.getMessage()));
         }
-    }
-
-    private void addUserByUsername(ChatGroup group, String username, Long chatId, OperationResult result) {
-        Optional<TelegramUser> userOpt = userSyncService.findUserByUsername(username);
 
-        if (userOpt.isPresent()) {
-            addUserToGroup(group, userOpt.get().getUserId(), result);
-        } else {
-            result.addFailed("@" + username, "Пользователь не найден в базе");
-        }
+        return result;
     }
 
     private OperationResult removeMembersFromGroup(ChatGroup group, List<ParsedMention> mentions) {
         OperationResult result = new OperationResult();
+        ResolvedMentions resolved = resolveMentions(mentions);
 
-        List<GroupMember> currentMembers = groupService.getGroupMembersWithUsers(group.getId());
-        var currentUserIds = currentMembers.stream()
-                .map(member -> member.getUser().getUserId())
+        Set<Long> userIds = mentions.stream()
+                .map(resolved::find)
+                .filter(Objects::nonNull)
+                .map(TelegramUser::getUserId)
                 .collect(Collectors.toSet());
 
-        for (ParsedMention mention : mentions) {
-            try {
-                Long userIdToRemove = findUserIdToRemove(mention, currentUserIds);
-
-                if (userIdToRemove != null) {
-                    groupService.removeMemberFromGroupWithUser(group.getId(), userIdToRemove);
+        try {
+            Set<Long> removed = groupService.removeUsersFromGroup(group.getId(), userIds);
+            for (ParsedMention mention : mentions) {
+                TelegramUser user = resolved.find(mention);
+                if (user != null && removed.contains(user.getUserId())) {
                     result.addSuccess(mention.getText());
                 } else {
                     result.addSkipped("Пользователь не найден в группе");
                 }
-            } catch (Exception e) {
-                result.addFailed(mention.getText(), e.getMessage());
             }
+        } catch (Exception e) {
+            log.warn("Failed to remove users from group {}: {}", group.getId(), e.getMessage());
+            mentions.forEach(mention -> result.addFailed(mention.getText(), e.getMessage()));
         }
 
         return result;
     }
 
-    private Long findUserIdToRemove(ParsedMention mention, Set<Long> currentUserIds) {
-        if (mention.getUserId() != null) {
-            return currentUserIds.contains(mention.getUserId()) ? mention.getUserId() : null;
-        } else {
-            var userOpt = userSyncService.findUserByUsername(mention.getUsername());
-            return userOpt.filter(user -> currentUserIds.contains(user.getUserId()))
-                    .map(TelegramUser::getUserId)
-                    .orElse(null);
+    /**
+     * Находит всех упомянутых пользователей одним запросом
+     */
+    private ResolvedMentions resolveMentions(List<ParsedMention> mentions) {
+        Set<Long> userIds = mentions.stream()
+                .map(ParsedMention::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> usernames = mentions.stream()
+                .filter(mention -> mention.getUserId() == null)
+                .map(ParsedMention::getUsername)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        List<TelegramUser> users = userSyncService.resolveUsers(userIds, usernames);
+        return new ResolvedMentions(
+                users.stream().collect(Collectors.toMap(TelegramUser::getUserId, user -> user, (a, b) -> a)),
+                users.stream()
+                        .filter(user -> user.getUserName() != null)
+                        .collect(Collectors.toMap(TelegramUser::getUserName, user -> user, (a, b) -> a)));
+    }
+
+    private String formatUserName(TelegramUser user) {
+        return user.getUserName() != null ?
+                "@" + user.getUserName() :
+                user.getFirstName() + " " + user.getLastName();
+    }
+
+    @RequiredArgsConstructor
+    private static class ResolvedMentions {
+
+        private final Map<Long, TelegramUser> byUserId;
+        private final Map<String, TelegramUser> byUserName;
+
+        TelegramUser find(ParsedMention mention) {
+            return mention.getUserId() != null ?
+                    byUserId.get(mention.getUserId()) :
+                    byUserName.get(mention.getUsername());
         }
     }
 
@@ -179,7 +200,7 @@ public class MemberManagementService {
 
         if (!result.getSuccess().isEmpty()) {
             response.append("✅ *Успешно:*\n");
-            result.getSuccess().forEach(user -> response.append("• ").append(EscapeHelper.escapeMarkdownV2(user)).append("\n"));
+            result.getSuccess().forEach(user -> EscapeHelper.escapeMarkdownV2(response.append("• "), user).append("\n"));
             response.append("\n");
         }
 
@@ -192,13 +213,13 @@ public class MemberManagementService {
         if (!result.getFailed().isEmpty()) {
             response.append("❌ *Ошибки:*\n");
             result.getFailed().forEach((user, error) ->
-                    response.append("• ").append(EscapeHelper.escapeMarkdownV2(user)).append(": ").append(error).append("\n"));
+                    EscapeHelper.escapeMarkdownV2(response.append("• "), user).append(": ").append(error).append("\n"));
         }
 
         if (result.getSuccess().isEmpty() && result.getSkipped().isEmpty() && result.getFailed().isEmpty()) {
             response.append("ℹ️ Не было обработано ни одного пользователя");
         }
 
-        bot.silent().sendMd(response.toString(), ctx.chatId());
+        sendService.sendToChat(ctx.chatId(), response.toString(), Constants.PARSE_MARKDOWN);
     }
 }
\ No newline at end of file
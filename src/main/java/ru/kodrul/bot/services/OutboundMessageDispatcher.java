@@ -0,0 +1,521 @@
+package ru.kodrul.bot.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.abilitybots.api.bot.AbilityBot;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.PartialBotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import ru.kodrul.bot.config.properties.RateLimitProperties;
+import ru.kodrul.bot.utils.TokenBucket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Единая очередь исходящих сообщений в Telegram.
+ * <p>
+ * Сообщения раскладываются по очередям чатов. Каждый чат ограничен своим token bucket
+ * ({@code maxMessagesPerMinute}), все чаты вместе - общим ({@code messagesPerSecond}).
+ * Сообщения одного чата отправляются строго по порядку, при этом чат, исчерпавший лимит,
+ * не задерживает отправку в другие чаты.
+ * <p>
+ * Временные ошибки (429, 5xx, сетевые) не теряют сообщение: оно возвращается в начало очереди своего чата
+ * и отправляется повторно. При 429 чат (а при повторных 429 из разных чатов - вся отправка) приостанавливается
+ * на время из {@code retry_after}. Постоянные ошибки (4xx) завершают отправку сразу, а если у сообщения
+ * есть запасной запрос - он отправляется вместо исходного в том же месте очереди чата.
+ * <p>
+ * Метрики: {@code bot.outbound.requests} - каждый запрос к Bot API с кодом ответа,
+ * {@code bot.outbound.send.duration} - от постановки в очередь до итогового результата с учётом повторов
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboundMessageDispatcher {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 5;
+
+    @Lazy
+    private final AbilityBot abilityBot;
+    private final RateLimitProperties rateLimitProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Map<Long, ChatLane> lanes = new HashMap<>();
+    private final PriorityQueue<ChatLane> readyLanes = new PriorityQueue<>(Comparator.comparingLong(lane -> lane.readyAtNanos));
+    private final List<Thread> workers = new ArrayList<>();
+
+    private TokenBucket globalBucket;
+    private int pendingCount;
+    private long globalPausedUntilNanos = System.nanoTime();
+    private Long lastRateLimitedChatId;
+    private long lastRateLimitedUntilNanos = System.nanoTime();
+
+    private final LongAdder dispatchedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder retriedCount = new LongAdder();
+    private final LongAdder rateLimitedCount = new LongAdder();
+    private final LongAdder retriesExhaustedCount = new LongAdder();
+    private final LongAdder fallbackCount = new LongAdder();
+    private Timer queueWait;
+
+    @PostConstruct
+    public void start() {
+        queueWait = Timer.builder("bot.outbound.queue.wait")
+                .description("Время ожидания сообщения в очереди до очередной попытки отправки")
+                .register(meterRegistry);
+
+        globalBucket = new TokenBucket(
+                Math.max(1, rateLimitProperties.getMessagesPerSecond()),
+                Math.max(1, rateLimitProperties.getMessagesPerSecond()),
+                System.nanoTime());
+
+        int threads = Math.max(1, rateLimitProperties.getSenderThreads());
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::runWorker, "OutboundSender-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Outbound dispatcher started: {} threads, rate limiting {}", threads,
+                rateLimitProperties.isEnabled() ? "enabled" : "disabled");
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Ставит запрос на отправку сообщения в очередь чата
+     *
+     * @return future, завершающееся отправленным сообщением или ошибкой Telegram API
+     */
+    public CompletableFuture<Message> submit(Long chatId, PartialBotApiMethod<Message> method) {
+        return submit(chatId, method, null);
+    }
+
+    /**
+     * Ставит запрос в очередь чата вместе с запасным запросом. Если исходный запрос завершился ошибкой
+     * без повтора, запасной отправляется следующим в этом же чате, раньше сообщений, поставленных позже
+     *
+     * @return future, завершающееся сообщением, отправленным исходным или запасным запросом
+     */
+    public CompletableFuture<Message> submit(Long chatId, PartialBotApiMethod<Message> method,
+                                             PartialBotApiMethod<Message> fallback) {
+        OutboundMessage message = new OutboundMessage(chatId, method, fallback);
+
+        lock.lock();
+        try {
+            if (pendingCount >= rateLimitProperties.getQueueCapacity()) {
+                rejectedCount.increment();
+                log.warn("Outbound queue is full ({} messages), dropping message to chat {}", pendingCount, chatId);
+                complete(message, null, new RejectedExecutionException("Outbound queue is full"), "rejected");
+                return message.future;
+            }
+
+            ChatLane lane = lanes.computeIfAbsent(chatId, this::createLane);
+            lane.pending.add(message);
+            pendingCount++;
+            scheduleLane(lane, System.nanoTime());
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        return message.future;
+    }
+
+    private ChatLane createLane(Long chatId) {
+        int perMinute = Math.max(1, rateLimitProperties.getMaxMessagesPerMinute());
+        return new ChatLane(new TokenBucket(perMinute, perMinute / 60d, System.nanoTime()));
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            OutboundMessage message;
+            ChatLane lane;
+            try {
+                lane = takeReadyLane();
+                message = lane.inFlight;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            long requestStartNanos = System.nanoTime();
+            queueWait.record(requestStartNanos - message.enqueuedAtNanos, TimeUnit.NANOSECONDS);
+
+            Message result = null;
+            Exception error = null;
+            try {
+                message.attempts++;
+                result = execute(message.method);
+            } catch (Exception e) {
+                error = e;
+            }
+            recordRequest(message.method, error, System.nanoTime() - requestStartNanos);
+
+            if (error == null) {
+                dispatchedCount.increment();
+                if (message.attempts > 1) {
+                    log.info("Message to chat {} sent after {} attempts", message.chatId, message.attempts);
+                }
+                releaseLane(lane);
+                complete(message, result, null, "sent");
+            } else if (!retryLater(lane, message, error) && !fallBack(lane, message, error)) {
+                failedCount.increment();
+                releaseLane(lane);
+                complete(message, null, error, "failed");
+            }
+        }
+    }
+
+    private void complete(OutboundMessage message, Message result, Exception error, String outcome) {
+        Timer.builder("bot.outbound.send.duration")
+                .description("Время от постановки сообщения в очередь до итогового результата отправки")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - message.enqueuedAtNanos, TimeUnit.NANOSECONDS);
+
+        if (error == null) {
+            message.future.complete(result);
+        } else {
+            message.future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Длительность запроса к Bot API с кодом ответа: "ok", код ошибки Telegram или "io" для сетевых ошибок
+     */
+    private void recordRequest(PartialBotApiMethod<Message> method, Exception error, long durationNanos) {
+        String status;
+        if (error == null) {
+            status = "ok";
+        } else if (error instanceof TelegramApiRequestException requestException && requestException.getErrorCode() != null) {
+            status = String.valueOf(requestException.getErrorCode());
+        } else {
+            status = error instanceof TelegramApiException ? "io" : "error";
+        }
+
+        Timer.builder("bot.outbound.requests")
+                .description("Запросы к Telegram Bot API на отправку сообщений")
+                .tag("method", method.getClass().getSimpleName())
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Решает, нужно ли повторить отправку, и если да - возвращает сообщение в начало очереди чата
+     * и приостанавливает чат на нужное время
+     *
+     * @return true, если сообщение поставлено на повторную отправку
+     */
+    private boolean retryLater(ChatLane lane, OutboundMessage message, Exception error) {
+        Integer errorCode = error instanceof TelegramApiRequestException requestException
+                ? requestException.getErrorCode()
+                : null;
+        boolean rateLimited = errorCode != null && errorCode == TOO_MANY_REQUESTS;
+        boolean transientError = error instanceof TelegramApiException
+                && (errorCode == null || errorCode >= 500);
+
+        if (!rateLimited && !transientError) {
+            log.warn("Permanent error sending message to chat {} (code {}): {}", message.chatId, errorCode, error.getMessage());
+            return false;
+        }
+
+        if (message.attempts > rateLimitProperties.getMaxRetries()) {
+            retriesExhaustedCount.increment();
+            log.error("Giving up on message to chat {} after {} attempts: {}", message.chatId, message.attempts, error.getMessage());
+            return false;
+        }
+
+        long now = System.nanoTime();
+        long delayNanos;
+        if (rateLimited) {
+            rateLimitedCount.increment();
+            delayNanos = TimeUnit.SECONDS.toNanos(retryAfterSeconds((TelegramApiRequestException) error));
+        } else {
+            long backoffMillis = rateLimitProperties.getRetryBaseDelayMillis() * (1L << Math.min(message.attempts - 1, 10));
+            delayNanos = TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+        }
+
+        lock.lock();
+        try {
+            long resumeAt = now + delayNanos;
+            lane.readyAtNanos = resumeAt;
+            if (rateLimited) {
+                lane.bucket.drainUntil(resumeAt);
+                pauseGloballyIfNeeded(message.chatId, resumeAt, now);
+            }
+
+            lane.pending.addFirst(message);
+            pendingCount++;
+            lane.inFlight = null;
+            scheduleLane(lane, now);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        retriedCount.increment();
+        log.warn("Retrying message to chat {} in {} ms (attempt {}, code {}): {}",
+                message.chatId, TimeUnit.NANOSECONDS.toMillis(delayNanos), message.attempts, errorCode, error.getMessage());
+        return true;
+    }
+
+    /**
+     * Заменяет не отправленный запрос запасным и возвращает сообщение в начало очереди чата,
+     * чтобы порядок сообщений чата не нарушился
+     *
+     * @return true, если у сообщения был запасной запрос и он поставлен на отправку
+     */
+    private boolean fallBack(ChatLane lane, OutboundMessage message, Exception error) {
+        if (message.fallback == null) {
+            return false;
+        }
+
+        log.warn("Sending fallback {} to chat {} instead of {}: {}", message.fallback.getClass().getSimpleName(),
+                message.chatId, message.method.getClass().getSimpleName(), error.getMessage());
+        message.method = message.fallback;
+        message.fallback = null;
+        message.attempts = 0;
+
+        lock.lock();
+        try {
+            lane.pending.addFirst(message);
+            pendingCount++;
+            lane.inFlight = null;
+            scheduleLane(lane, System.nanoTime());
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        fallbackCount.increment();
+        return true;
+    }
+
+    /**
+     * Если 429 приходит для разных чатов в пределах одного окна ожидания, значит упёрлись в общий лимит бота,
+     * и приостанавливать нужно всю отправку. Вызывается под блокировкой
+     */
+    private void pauseGloballyIfNeeded(Long chatId, long resumeAt, long now) {
+        boolean otherChatLimited = lastRateLimitedChatId != null
+                && !lastRateLimitedChatId.equals(chatId)
+                && lastRateLimitedUntilNanos - now > 0;
+
+        if (otherChatLimited && resumeAt - globalPausedUntilNanos > 0) {
+            globalPausedUntilNanos = resumeAt;
+            globalBucket.drainUntil(resumeAt);
+            log.warn("Global rate limit hit, pausing all outbound messages for {} ms",
+                    TimeUnit.NANOSECONDS.toMillis(resumeAt - now));
+        }
+
+        lastRateLimitedChatId = chatId;
+        lastRateLimitedUntilNanos = resumeAt;
+    }
+
+    private long retryAfterSeconds(TelegramApiRequestException e) {
+        if (e.getParameters() != null && e.getParameters().getRetryAfter() != null) {
+            return Math.max(1, e.getParameters().getRetryAfter());
+        }
+        return DEFAULT_RETRY_AFTER_SECONDS;
+    }
+
+    /**
+     * Ждёт чат, в который можно отправить сообщение с учётом лимитов, и забирает из него первое сообщение
+     */
+    private ChatLane takeReadyLane() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                ChatLane lane = readyLanes.peek();
+                if (lane == null) {
+                    available.await();
+                    continue;
+                }
+
+                long now = System.nanoTime();
+                if (globalPausedUntilNanos - now > 0) {
+                    available.awaitNanos(globalPausedUntilNanos - now);
+                    continue;
+                }
+
+                if (lane.readyAtNanos - now > 0) {
+                    available.awaitNanos(lane.readyAtNanos - now);
+                    continue;
+                }
+
+                if (rateLimitProperties.isEnabled()) {
+                    long laneWait = lane.bucket.nanosUntilAvailable(now);
+                    if (laneWait > 0) {
+                        readyLanes.poll();
+                        lane.readyAtNanos = now + laneWait;
+                        readyLanes.add(lane);
+                        continue;
+                    }
+
+                    long globalWait = globalBucket.nanosUntilAvailable(now);
+                    if (globalWait > 0) {
+                        available.awaitNanos(globalWait);
+                        continue;
+                    }
+
+                    lane.bucket.consume(now);
+                    globalBucket.consume(now);
+                }
+
+                readyLanes.poll();
+                lane.scheduled = false;
+                lane.inFlight = lane.pending.poll();
+                pendingCount--;
+                return lane;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseLane(ChatLane lane) {
+        lock.lock();
+        try {
+            lane.inFlight = null;
+            scheduleLane(lane, System.nanoTime());
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ставит чат в очередь готовых, если у него есть ожидающие сообщения и нет сообщения в процессе отправки.
+     * Вызывается под блокировкой
+     */
+    private void scheduleLane(ChatLane lane, long now) {
+        if (lane.scheduled || lane.inFlight != null || lane.pending.isEmpty()) {
+            return;
+        }
+        if (lane.readyAtNanos - now < 0) {
+            lane.readyAtNanos = now;
+        }
+        lane.scheduled = true;
+        readyLanes.add(lane);
+    }
+
+    private Message execute(PartialBotApiMethod<Message> method) throws TelegramApiException {
+        if (method instanceof SendPhoto sendPhoto) {
+            return abilityBot.execute(sendPhoto);
+        }
+        if (method instanceof BotApiMethod<Message> botApiMethod) {
+            return abilityBot.execute(botApiMethod);
+        }
+        throw new IllegalArgumentException("Unsupported method: " + method.getClass().getSimpleName());
+    }
+
+    /**
+     * Удаляем состояние простаивающих чатов, лимиты которых полностью восстановились
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleLanes() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            lanes.values().removeIf(lane ->
+                    lane.pending.isEmpty() && lane.inFlight == null && !lane.scheduled && lane.bucket.isFull(now));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return pendingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDispatchedCount() {
+        return dispatchedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getRetriedCount() {
+        return retriedCount.sum();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimitedCount.sum();
+    }
+
+    public long getRetriesExhaustedCount() {
+        return retriesExhaustedCount.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    private static class ChatLane {
+
+        private final TokenBucket bucket;
+        private final ArrayDeque<OutboundMessage> pending = new ArrayDeque<>();
+        private OutboundMessage inFlight;
+        private boolean scheduled;
+        private long readyAtNanos = System.nanoTime();
+
+        private ChatLane(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    private static class OutboundMessage {
+
+        private final Long chatId;
+        private final long enqueuedAtNanos = System.nanoTime();
+        private final CompletableFuture<Message> future = new CompletableFuture<>();
+        private PartialBotApiMethod<Message> method;
+        private PartialBotApiMethod<Message> fallback;
+        private int attempts;
+
+        private OutboundMessage(Long chatId, PartialBotApiMethod<Message> method, PartialBotApiMethod<Message> fallback) {
+            this.chatId = chatId;
+            this.method = method;
+            this.fallback = fallback;
+        }
+    }
+}
@@ -4,11 +4,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.telegram.abilitybots.api.objects.MessageContext;
-import org.telegram.abilitybots.api.sender.SilentSender;
-import org.springframework.transaction.annotation.Transactional;
-import ru.kodrul.bot.entity.ChatGroup;
-import ru.kodrul.bot.entity.GroupMember;
+import ru.kodrul.bot.pojo.GroupSnapshot;
+import ru.kodrul.bot.utils.Constants;
 import ru.kodrul.bot.utils.EscapeHelper;
+import ru.kodrul.bot.utils.GroupFormatHelper;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -21,14 +20,14 @@ import java.util.Optional;
 public class RandomizeService {
 
     private final GroupManagementService groupManagementService;
+    private final SendService sendService;
 
-    @Transactional(readOnly = true)
-    public void replayRandomize(MessageContext context, SilentSender sender) {
+    public void replayRandomize(MessageContext context) {
         String[] args = context.arguments();
 
         if (args.length == 0) {
-            sender.send("Для выбора по одному участнику по каждому направлению укажите по каким направлениям "
-                    + "требуется выбор. Пример: /randomize qa front back ann", context.chatId());
+            sendService.sendToChat(context.chatId(), "Для выбора по одному участнику по каждому направлению укажите по каким направлениям "
+                    + "требуется выбор. Пример: /randomize qa front back ann");
             return;
         }
 
@@ -38,10 +37,10 @@ public class RandomizeService {
 
         for (String arg : args) {
             try {
-                Optional<ChatGroup> groupOpt = groupManagementService.getGroupByNameWithMembersAndUsers(context.chatId(), arg);
+                Optional<GroupSnapshot> groupOpt = groupManagementService.getGroupSnapshot(context.chatId(), arg);
                 if (groupOpt.isPresent()) {
-                    ChatGroup group = groupOpt.get();
-                    List<GroupMember> members = group.getMembers();
+                    GroupSnapshot group = groupOpt.get();
+                    List<GroupSnapshot.Member> members = group.getMembers();
 
                     if (members.isEmpty()) {
                         builder.append(String.format("❌ Группа '%s' пуста\n", arg));
@@ -49,12 +48,12 @@ public class RandomizeService {
                     }
 
                     // Перемешиваем участников
-                    List<GroupMember> shuffledMembers = new ArrayList<>(members);
+                    List<GroupSnapshot.Member> shuffledMembers = new ArrayList<>(members);
                     Collections.shuffle(shuffledMembers);
 
                     // Берем первого участника из перемешанного списка
-                    GroupMember selectedMember = shuffledMembers.get(0);
-                    String userName = formatUserName(selectedMember);
+                    GroupSnapshot.Member selectedMember = shuffledMembers.get(0);
+                    String userName = selectedMember.getDisplayName();
 
                     builder.append(String.format("🏷️ *%s*: %s\n", EscapeHelper.escapeMarkdownV2(group.getName()), EscapeHelper.escapeMarkdownV2(userName)));
                     hasValidArguments = true;
@@ -69,136 +68,84 @@ public class RandomizeService {
         }
 
         if (!hasValidArguments) {
-            sender.send("❌ Укажите верные названия групп для рандомизации. Используйте /listgroups чтобы увидеть доступные группы.", context.chatId());
+            sendService.sendToChat(context.chatId(), "❌ Укажите верные названия групп для рандомизации. Используйте /listgroups чтобы увидеть доступные группы.");
         } else {
-            sender.sendMd(builder.toString(), context.chatId());
-        }
-    }
-
-    /**
-     * Форматирование имени пользователя для отображения
-     */
-    private String formatUserName(GroupMember member) {
-        String userName = member.getUser().getUserName();
-        String firstName = member.getUser().getFirstName();
-        String lastName = member.getUser().getLastName();
-
-        if (userName != null && !userName.isEmpty()) {
-            return "@" + userName;
-        } else {
-            return String.format("%s %s",
-                    firstName != null ? firstName : "",
-                    lastName != null ? lastName : "").trim();
+            sendService.sendToChat(context.chatId(), builder.toString(), Constants.PARSE_MARKDOWN);
         }
     }
 
     /**
      * Дополнительный метод для рандомизации нескольких участников из группы
      */
-    @Transactional(readOnly = true)
-    public void randomizeMultipleFromGroup(MessageContext context, SilentSender sender, String groupName, int count) {
+    public void randomizeMultipleFromGroup(MessageContext context, String groupName, int count) {
         try {
-            Optional<ChatGroup> groupOpt = groupManagementService.getGroupByNameWithMembersAndUsers(context.chatId(), groupName);
+            Optional<GroupSnapshot> groupOpt = groupManagementService.getGroupSnapshot(context.chatId(), groupName);
             if (groupOpt.isEmpty()) {
-                sender.send("❌ Группа '" + groupName + "' не найдена", context.chatId());
+                sendService.sendToChat(context.chatId(), "❌ Группа '" + groupName + "' не найдена");
                 return;
             }
 
-            ChatGroup group = groupOpt.get();
-            List<GroupMember> members = group.getMembers();
+            List<GroupSnapshot.Member> members = groupOpt.get().getMembers();
 
             if (members.isEmpty()) {
-                sender.send("❌ Группа '" + groupName + "' пуста", context.chatId());
+                sendService.sendToChat(context.chatId(), "❌ Группа '" + groupName + "' пуста");
                 return;
             }
 
             if (count > members.size()) {
-                sender.send(String.format("❌ В группе только %d участников, нельзя выбрать %d",
-                        members.size(), count), context.chatId());
+                sendService.sendToChat(context.chatId(), String.format("❌ В группе только %d участников, нельзя выбрать %d",
+                        members.size(), count));
                 return;
             }
 
             // Перемешиваем и выбираем нужное количество
-            List<GroupMember> shuffledMembers = new ArrayList<>(members);
+            List<GroupSnapshot.Member> shuffledMembers = new ArrayList<>(members);
             Collections.shuffle(shuffledMembers);
 
             StringBuilder result = new StringBuilder();
             result.append(String.format("🎲 Случайные %d участников из группы '%s':\n\n", count, groupName));
 
             for (int i = 0; i < count; i++) {
-                GroupMember member = shuffledMembers.get(i);
-                String userName = formatUserName(member);
+                String userName = shuffledMembers.get(i).getDisplayName();
                 result.append(String.format("%d. %s\n", i + 1, userName));
             }
 
-            sender.sendMd(result.toString(), context.chatId());
+            sendService.sendToChat(context.chatId(), result.toString(), Constants.PARSE_MARKDOWN);
 
         } catch (Exception e) {
             log.error("Error in randomizeMultipleFromGroup", e);
-            sender.send("❌ Ошибка при выполнении рандомизации", context.chatId());
+            sendService.sendToChat(context.chatId(), "❌ Ошибка при выполнении рандомизации");
         }
     }
 
     /**
      * Метод для распределения участников группы по командам
      */
-    @Transactional(readOnly = true)
-    public void distributeGroupToTeams(MessageContext context, SilentSender sender, String groupName, int teamCount) {
+    public void distributeGroupToTeams(MessageContext context, String groupName, int teamCount) {
         try {
-            Optional<ChatGroup> groupOpt = groupManagementService.getGroupByNameWithMembersAndUsers(context.chatId(), groupName);
+            Optional<GroupSnapshot> groupOpt = groupManagementService.getGroupSnapshot(context.chatId(), groupName);
             if (groupOpt.isEmpty()) {
-                sender.send("❌ Группа '" + groupName + "' не найдена", context.chatId());
+                sendService.sendToChat(context.chatId(), "❌ Группа '" + groupName + "' не найдена");
                 return;
             }
 
-            ChatGroup group = groupOpt.get();
-            List<GroupMember> members = group.getMembers();
+            List<GroupSnapshot.Member> members = groupOpt.get().getMembers();
 
             if (members.isEmpty()) {
-                sender.send("❌ Группа '" + groupName + "' пуста", context.chatId());
+                sendService.sendToChat(context.chatId(), "❌ Группа '" + groupName + "' пуста");
                 return;
             }
 
             if (teamCount < 2 || teamCount > members.size()) {
-                sender.send("❌ Количество команд должно быть от 2 до " + members.size(), context.chatId());
+                sendService.sendToChat(context.chatId(), "❌ Количество команд должно быть от 2 до " + members.size());
                 return;
             }
 
-            // Перемешиваем участников
-            List<GroupMember> shuffledMembers = new ArrayList<>(members);
-            Collections.shuffle(shuffledMembers);
-
-            // Создаем команды
-            List<List<GroupMember>> teams = new ArrayList<>();
-            for (int i = 0; i < teamCount; i++) {
-                teams.add(new ArrayList<>());
-            }
-
-            // Распределяем участников по командам
-            for (int i = 0; i < shuffledMembers.size(); i++) {
-                int teamIndex = i % teamCount;
-                teams.get(teamIndex).add(shuffledMembers.get(i));
-            }
-
-            // Формируем результат
-            StringBuilder result = new StringBuilder();
-            result.append(String.format("🏆 Распределение группы '%s' на %d команд:\n\n", groupName, teamCount));
-
-            for (int i = 0; i < teams.size(); i++) {
-                result.append(String.format("*Команда %d* (%d участников):\n", i + 1, teams.get(i).size()));
-
-                for (GroupMember member : teams.get(i)) {
-                    String userName = EscapeHelper.escapeMarkdownV2(formatUserName(member));
-                    result.append("• ").append(userName).append("\n");
-                }
-                result.append("\n");
-            }
-
-            sender.sendMd(result.toString(), context.chatId());
+            sendService.sendToChat(context.chatId(), GroupFormatHelper.formatTeams(groupName, members, teamCount), Constants.PARSE_MARKDOWN);
 
         } catch (Exception e) {
             log.error("Error in distributeGroupToTeams", e);
-            sender.send("❌ Ошибка при распределении по командам", context.chatId());
+            sendService.sendToChat(context.chatId(), "❌ Ошибка при распределении по командам");
         }
     }
 }
\ No newline at end of file
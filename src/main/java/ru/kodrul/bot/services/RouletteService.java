@@ -3,25 +3,35 @@ package ru.kodrul.bot.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.telegram.abilitybots.api.objects.MessageContext;
-import org.telegram.abilitybots.api.sender.SilentSender;
 import ru.kodrul.bot.utils.Constants;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RouletteService {
 
-    @Transactional
-    public void replyRussianRoulette(MessageContext context, SilentSender sender) {
+    private static final long START_DELAY_MILLIS = 2000;
+    private static final long TURN_DELAY_MILLIS = 1500;
+    private static final long CHAMBER_REVEAL_DELAY_MILLIS = 1000;
+
+    private static final String LOADED = "заряжено";
+    private static final String EMPTY = "пусто";
+
+    private final SendService sendService;
+    private final TaskScheduler rouletteScheduler;
+
+    public void replyRussianRoulette(MessageContext context) {
 
         var players = new ArrayList<String>();
         var bulletCount = new ArrayList<Integer>();
@@ -36,57 +46,91 @@ public class RouletteService {
                 });
 
         if (bulletCount.isEmpty() || players.isEmpty()) {
-            sender.send("Проверьте правильность ввода команды.", context.chatId());
+            sendService.sendToChat(context.chatId(), "Проверьте правильность ввода команды.");
             return;
         }
 
         Collections.shuffle(players);
 
-        try {
-            playRussianRoulette(players, bulletCount.get(0), context.chatId(), sender);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        new RouletteGame(context.chatId(), players, bulletCount.get(0)).start();
     }
 
-    private void playRussianRoulette(ArrayList<String> players, Integer bullets, Long chatId, SilentSender sender) throws InterruptedException {
-        sender.send(String.format(Constants.ROULETTE_START, players.toString(), bullets.toString()), chatId);
-        Thread.sleep(2000L);
+    /**
+     * Партия в рулетку как конечный автомат: каждая драматическая пауза - отложенная задача в {@link TaskScheduler},
+     * поэтому ожидающая партия не занимает ни поток, ни соединение с базой
+     */
+    private class RouletteGame {
+
+        private final Long chatId;
+        private final List<String> players;
+        private final int bullets;
+        private List<String> chamber;
+        private int turn;
+
+        RouletteGame(Long chatId, List<String> players, int bullets) {
+            this.chatId = chatId;
+            this.players = players;
+            this.bullets = bullets;
+        }
 
-        if (bullets >= players.size()) {
-            sender.send("Количество патронов не может быть больше или равно количеству участников.", chatId);
-            return;
+        void start() {
+            sendService.sendToChat(chatId, String.format(Constants.ROULETTE_START, players.toString(), String.valueOf(bullets)));
+            schedule(this::loadChamber, START_DELAY_MILLIS);
         }
 
-        List<String> chamber = new ArrayList<>(Collections.nCopies(players.size(), "пусто"));
-//        List<String> chamber = new ArrayList<>(Collections.nCopies(6, "пусто"));
-        Random random = new Random();
-
-        // Распределяем заряженные патроны
-        for (int i = 0; i < bullets; i++) {
-            int position;
-            do {
-                position = random.nextInt(/*players.size()*/chamber.size());
-            } while (chamber.get(position).equals("заряжено"));
-            chamber.set(position, "заряжено");
+        private void loadChamber() {
+            if (bullets >= players.size()) {
+                sendService.sendToChat(chatId, "Количество патронов не может быть больше или равно количеству участников.");
+                return;
+            }
+
+            chamber = new ArrayList<>(Collections.nCopies(players.size(), EMPTY));
+            Random random = new Random();
+
+            // Распределяем заряженные патроны
+            for (int i = 0; i < bullets; i++) {
+                int position;
+                do {
+                    position = random.nextInt(chamber.size());
+                } while (chamber.get(position).equals(LOADED));
+                chamber.set(position, LOADED);
+            }
+
+            nextTurn();
         }
 
-        for (int i = 0; i < players.size(); i++) {
-            String player = players.get(i);
-            if (chamber.get(i).equals("заряжено")) {
-                sender.send(String.format(Constants.ROULETTE_FAILED.get(new Random().nextInt(Constants.ROULETTE_FAILED.size())), player), chatId);
+        private void nextTurn() {
+            if (turn >= players.size()) {
+                sendService.sendToChat(chatId, "В этот раз всем повезло. Даже уборщице, ведь ей не придётся соскребать мозги со стен... Состояние обоймы: " + chamber);
+                return;
+            }
+
+            String player = players.get(turn);
+            if (chamber.get(turn).equals(LOADED)) {
+                sendService.sendToChat(chatId, String.format(randomPhrase(Constants.ROULETTE_FAILED), player));
                 if (bullets > 1) {
-                    Thread.sleep(1000);
-                    sender.send("Состояние обоймы: " + chamber, chatId);
+                    schedule(() -> sendService.sendToChat(chatId, "Состояние обоймы: " + chamber), CHAMBER_REVEAL_DELAY_MILLIS);
                 }
                 return;
-            } else {
-                sender.send(String.format(Constants.ROULETTE_SUCCESSFUL.get(new Random().nextInt(Constants.ROULETTE_SUCCESSFUL.size())), player), chatId);
             }
-            Thread.sleep(1500);
+
+            sendService.sendToChat(chatId, String.format(randomPhrase(Constants.ROULETTE_SUCCESSFUL), player));
+            turn++;
+            schedule(this::nextTurn, TURN_DELAY_MILLIS);
         }
 
-        sender.send("В этот раз всем повезло. Даже уборщице, ведь ей не придётся соскребать мозги со стен... Состояние обоймы: " + chamber, chatId);
-    }
+        private void schedule(Runnable step, long delayMillis) {
+            rouletteScheduler.schedule(() -> {
+                try {
+                    step.run();
+                } catch (Exception e) {
+                    log.error("Roulette game in chat {} failed", chatId, e);
+                }
+            }, Instant.now().plusMillis(delayMillis));
+        }
 
+        private String randomPhrase(List<String> phrases) {
+            return phrases.get(ThreadLocalRandom.current().nextInt(phrases.size()));
+        }
+    }
 }
@@ -1,150 +1,325 @@
 package ru.kodrul.bot.services;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.telegram.abilitybots.api.bot.AbilityBot;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
-import org.telegram.telegrambots.meta.api.objects.InputFile;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
-import ru.kodrul.bot.entity.ChatGroup;
-import ru.kodrul.bot.entity.GroupMember;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import ru.kodrul.bot.entity.ScheduledPost;
+import ru.kodrul.bot.pojo.ScheduledClaim;
+import ru.kodrul.bot.pojo.ScheduledFire;
+import ru.kodrul.bot.pojo.ScheduledPayload;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ScheduledMessageService {
 
+    /**
+     * Пост считается опоздавшим, если ушёл позже следующей минуты после планового срабатывания
+     */
+    private static final long LATE_THRESHOLD_MILLIS = 60_000;
+
+    /**
+     * Планировщик опрашивает базу на границе каждой секунды: cron-выражения срабатывают в целые секунды
+     */
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Сколько расписаний захватывается одной транзакцией. Следующая порция захватывается только после завершения
+     * отправок предыдущей, а если захвачено столько же строк - сразу, без ожидания следующей секунды
+     */
+    private static final int CLAIM_BATCH_SIZE = 500;
+
+    /**
+     * Сколько пропущенных срабатываний отправляется одновременно: после долгого простоя догоняющие посты
+     * уходят постепенно и не вытесняют из очереди отправки посты, пришедшие вовремя
+     */
+    private static final int MAX_CATCH_UP_IN_FLIGHT = 4;
+
     private final ScheduledService scheduledService;
-    private final GroupManagementService groupManagementService;
-    private final AbilityBot abilityBot;
+    private final ScheduledPayloadCache scheduledPayloadCache;
+    private final OutboundMessageDispatcher outboundMessageDispatcher;
+    private final ThreadPoolTaskExecutor scheduledPostsExecutor;
+    private final MeterRegistry meterRegistry;
+
+    private Timer tickDuration;
+    private Timer sendLag;
+    private Counter dueCount;
+    private Counter firedCount;
+    private Counter failedCount;
+    private Counter lateCount;
+
+    private final Queue<ScheduledFire> catchUpBacklog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger catchUpInFlight = new AtomicInteger();
+
+    private Thread schedulerThread;
+
+    @PostConstruct
+    public void initMetrics() {
+        tickDuration = Timer.builder("bot.scheduler.tick.duration")
+                .description("Длительность тика планировщика: от выборки due-расписаний до завершения всех отправок")
+                .register(meterRegistry);
+        sendLag = Timer.builder("bot.scheduler.send.lag")
+                .description("Отставание отправки поста от его планового времени срабатывания")
+                .register(meterRegistry);
+        dueCount = schedulerPosts("due");
+        firedCount = schedulerPosts("fired");
+        failedCount = schedulerPosts("failed");
+        lateCount = schedulerPosts("late");
+    }
+
+    private Counter schedulerPosts(String result) {
+        return Counter.builder("bot.scheduler.posts")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 
     /**
-     * Проверяем расписания каждую минуту
+     * Дозаполняем next_fire_at у старых расписаний и запускаем поток, который раз в секунду забирает из базы
+     * наступившие срабатывания
      */
-    @Scheduled(cron = "0 * * * * ?")
-    public void checkScheduledPosts() {
-        LocalDateTime currentDateTime = LocalDateTime.now().withSecond(0).withNano(0);
-        List<ScheduledPost> activeSchedules = scheduledService.getActiveSchedules();
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int initialized = scheduledService.initMissingFireTimes();
+        if (initialized > 0) {
+            log.info("Calculated next fire time for {} schedules", initialized);
+        }
 
-        log.debug("Checking {} active schedules for time: {}", activeSchedules.size(), currentDateTime);
+        schedulerThread = new Thread(this::runScheduler, "ScheduledPostsThread");
+        schedulerThread.setDaemon(true);
+        schedulerThread.start();
+    }
 
-        for (ScheduledPost schedule : activeSchedules) {
+    @PreDestroy
+    public void stop() {
+        if (schedulerThread != null) {
+            schedulerThread.interrupt();
+        }
+    }
+
+    private void runScheduler() {
+        while (!Thread.currentThread().isInterrupted()) {
+            boolean backlog = false;
             try {
-                if (scheduledService.shouldExecute(schedule, currentDateTime)) {
-                    sendScheduledMessage(schedule);
-                    scheduledService.markAsSent(schedule.getId());
-                    log.info("Executed schedule: {} for group {}", schedule.getId(), schedule.getGroupName());
+                ScheduledClaim claim = scheduledService.claimDue(LocalDateTime.now(), CLAIM_BATCH_SIZE);
+                if (!claim.getFires().isEmpty()) {
+                    // Ждём завершения тика: иначе в пик все наступившие слоты ушли бы в очередь отправки разом,
+                    // переполнили её и были бы потеряны - next_fire_at у них уже сдвинут
+                    checkScheduledPosts(claim.getFires()).join();
                 }
+                backlog = claim.getClaimedCount() == CLAIM_BATCH_SIZE;
             } catch (Exception e) {
-                log.error("Failed to process schedule {}: {}", schedule.getId(), e.getMessage());
+                log.error("Unexpected error in scheduler loop", e);
+            }
+            if (!backlog) {
+                awaitNextPoll();
             }
         }
+        log.info("Scheduler thread stopped");
     }
 
-    private void sendScheduledMessage(ScheduledPost schedule) {
+    private void awaitNextPoll() {
         try {
-            Optional<ChatGroup> groupOpt = groupManagementService.getGroupByNameWithMembersAndUsers(
-                    schedule.getChatId(), schedule.getGroupName());
+            Thread.sleep(POLL_INTERVAL_MILLIS - System.currentTimeMillis() % POLL_INTERVAL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            if (groupOpt.isEmpty()) {
-                log.warn("Group {} not found for chat {}", schedule.getGroupName(), schedule.getChatId());
-                return;
+    /**
+     * Выполняем захваченные этим узлом срабатывания. next_fire_at к этому моменту уже сдвинут, поэтому ни этот,
+     * ни другой узел не возьмут тот же слот повторно, даже если отправка завершится ошибкой.
+     * Посты разных чатов обрабатываются параллельно на ограниченном пуле, посты одного чата - по порядку.
+     * Пропущенные срабатывания уходят в отдельную очередь с ограниченным числом одновременных отправок.
+     * Возвращаемый future завершается, когда все своевременные отправки тика завершены (успешно или с ошибкой)
+     */
+    public CompletableFuture<Void> checkScheduledPosts(List<ScheduledFire> dueFires) {
+        long tickStartNanos = System.nanoTime();
+        log.debug("Processing {} due schedules", dueFires.size());
+        dueCount.increment(dueFires.size());
+
+        Map<Long, List<ScheduledFire>> firesByChat = new LinkedHashMap<>();
+        for (ScheduledFire fire : dueFires) {
+            if (fire.isCatchUp()) {
+                catchUpBacklog.add(fire);
+            } else {
+                firesByChat.computeIfAbsent(fire.getSchedule().getChatId(), chatId -> new ArrayList<>()).add(fire);
             }
+        }
+        drainCatchUp();
 
-            ChatGroup group = groupOpt.get();
-            List<GroupMember> members = group.getMembers();
+        Queue<Long> sentIds = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Void>> chatFutures = new ArrayList<>(firesByChat.size());
+        for (List<ScheduledFire> chatFires : firesByChat.values()) {
+            chatFutures.add(CompletableFuture
+                    .supplyAsync(() -> processChatFires(chatFires, sentIds), scheduledPostsExecutor)
+                    .thenCompose(Function.identity()));
+        }
 
-            if (members.isEmpty()) {
-                log.warn("Group {} is empty, skipping scheduled post", schedule.getGroupName());
-                return;
-            }
+        return CompletableFuture.allOf(chatFutures.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, e) -> markAsSent(sentIds))
+                .whenComplete((ignored, e) -> {
+                    long elapsedNanos = System.nanoTime() - tickStartNanos;
+                    tickDuration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+                    if (e != null) {
+                        log.error("Scheduler tick finished with error: {}", e.getMessage());
+                    }
+                    log.debug("Scheduler tick: {} schedules in {} chats completed in {} ms",
+                            dueFires.size(), firesByChat.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+                });
+    }
 
-            StringBuilder message = new StringBuilder();
-            for (GroupMember member : members) {
-                String username = member.getUser().getUserName();
-                if (username != null && !username.isEmpty()) {
-                    message.append("@").append(username).append(" ");
+    /**
+     * Последовательно ставит в очередь отправки посты одного чата, сохраняя их порядок
+     */
+    private CompletableFuture<Void> processChatFires(List<ScheduledFire> chatFires, Queue<Long> sentIds) {
+        List<CompletableFuture<Void>> sends = new ArrayList<>(chatFires.size());
+        for (ScheduledFire fire : chatFires) {
+            sends.add(sendFire(fire).thenAccept(sent -> {
+                if (sent) {
+                    sentIds.add(fire.getSchedule().getId());
                 }
-            }
+            }));
+        }
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+    }
 
-            if (schedule.getMessageText() != null && !schedule.getMessageText().isEmpty()) {
-                message.append("\n\n").append(schedule.getMessageText());
+    /**
+     * Запускает отправку пропущенных срабатываний, пока не занято {@value #MAX_CATCH_UP_IN_FLIGHT} слотов.
+     * Каждая завершённая отправка освобождает слот и продолжает разбор очереди
+     */
+    private void drainCatchUp() {
+        while (!catchUpBacklog.isEmpty()) {
+            int inFlight = catchUpInFlight.get();
+            if (inFlight >= MAX_CATCH_UP_IN_FLIGHT) {
+                return;
             }
-
-            String finalMessage = message.toString();
-
-            if (finalMessage.length() > 4000) {
-                finalMessage = finalMessage.substring(0, 4000) + "...";
-                log.warn("Message truncated for schedule {}", schedule.getId());
+            if (!catchUpInFlight.compareAndSet(inFlight, inFlight + 1)) {
+                continue;
             }
-
-            if (schedule.getImageUrl() != null && !schedule.getImageUrl().isEmpty()) {
-                sendPhotoMessage(schedule.getChatId(), schedule.getMessageThreadId(), schedule.getImageUrl(), finalMessage);
-            } else {
-                sendTextMessage(schedule.getChatId(), schedule.getMessageThreadId(), finalMessage);
+            ScheduledFire fire = catchUpBacklog.poll();
+            if (fire == null) {
+                catchUpInFlight.decrementAndGet();
+                continue;
             }
-
-        } catch (Exception e) {
-            throw new RuntimeException("Error sending scheduled message: " + e.getMessage(), e);
+            sendFire(fire).whenCompleteAsync((sent, e) -> {
+                if (Boolean.TRUE.equals(sent)) {
+                    markAsSent(List.of(fire.getSchedule().getId()));
+                }
+                catchUpInFlight.decrementAndGet();
+                drainCatchUp();
+            }, scheduledPostsExecutor);
         }
     }
 
-    private void sendTextMessage(Long chatId, Integer messageThreadId, String text) throws TelegramApiException {
+    /**
+     * Отправляет пост срабатывания и учитывает его в метриках. Future всегда завершается успешно:
+     * true, если пост отправлен
+     */
+    private CompletableFuture<Boolean> sendFire(ScheduledFire fire) {
+        ScheduledPost schedule = fire.getSchedule();
         try {
-            SendMessage message = new SendMessage();
-            message.setChatId(chatId.toString());
-            message.setText(text);
-
-            if (messageThreadId != null) {
-                message.setMessageThreadId(messageThreadId);
-                log.debug("Sending text message to thread {} in chat {}", messageThreadId, chatId);
-            }
-
-            abilityBot.execute(message);
+            return sendScheduledMessage(schedule).handle((sent, e) -> {
+                long lagMillis = Math.max(0, System.currentTimeMillis() - fireAtMillis(fire));
+                sendLag.record(lagMillis, TimeUnit.MILLISECONDS);
+                if (lagMillis > LATE_THRESHOLD_MILLIS) {
+                    lateCount.increment();
+                }
+                if (e == null) {
+                    firedCount.increment();
+                    log.info("Executed schedule: {} for group {}{}", schedule.getId(), schedule.getGroupName(),
+                            fire.isCatchUp() ? " (missed fire at " + fire.getFireTime() + ")" : "");
+                    return true;
+                }
+                failedCount.increment();
+                log.error("Failed to send schedule {}: {}", schedule.getId(), e.getMessage());
+                return false;
+            });
         } catch (Exception e) {
-            log.error("Failed to send text message to chat {} thread {}: {}",
-                    chatId, messageThreadId, e.getMessage());
-            throw e;
+            failedCount.increment();
+            log.error("Failed to process schedule {}: {}", schedule.getId(), e.getMessage());
+            return CompletableFuture.completedFuture(false);
         }
     }
 
-    private void sendPhotoMessage(Long chatId, Integer messageThreadId, String imageUrl, String caption) throws TelegramApiException {
-        try {
-            InputFile photo = new InputFile(imageUrl);
-            SendPhoto sendPhoto = new SendPhoto();
-            sendPhoto.setChatId(chatId.toString());
-            sendPhoto.setPhoto(photo);
+    /**
+     * Сколько пропущенных срабатываний ждут отправки
+     */
+    public int getCatchUpBacklog() {
+        return catchUpBacklog.size();
+    }
 
-            if (caption.length() > 1024) {
-                caption = caption.substring(0, 1020) + "...";
-            }
-            sendPhoto.setCaption(caption);
+    private static long fireAtMillis(ScheduledFire fire) {
+        return fire.getFireTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 
-            if (messageThreadId != null) {
-                sendPhoto.setMessageThreadId(messageThreadId);
-                log.debug("Sending photo message to thread {} in chat {}", messageThreadId, chatId);
-            }
+    /**
+     * Отмечаем успешно отправленные за тик расписания одним пакетным обновлением
+     */
+    private void markAsSent(Collection<Long> sentIds) {
+        if (sentIds.isEmpty()) {
+            return;
+        }
+        try {
+            scheduledService.markAllAsSent(sentIds, LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Failed to mark {} schedules as sent: {}", sentIds.size(), e.getMessage());
+        }
+    }
 
-            abilityBot.execute(sendPhoto);
+    /**
+     * Ставит в очередь отправки заранее собранный пост расписания. Если Telegram не смог отправить фото,
+     * отправляется текст со ссылкой на изображение
+     */
+    private CompletableFuture<Message> sendScheduledMessage(ScheduledPost schedule) {
+        Optional<ScheduledPayload> payloadOpt = scheduledPayloadCache.get(schedule);
+        if (payloadOpt.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-        } catch (TelegramApiException e) {
-            log.error("Failed to send photo message to chat {} thread {}: {}",
-                    chatId, messageThreadId, e.getMessage());
+        ScheduledPayload payload = payloadOpt.get();
+        Long chatId = payload.getChatId();
+        Integer messageThreadId = payload.getMessageThreadId();
 
-            String fallbackMessage = caption + "\n\n🖼️ Изображение: " + imageUrl;
-            sendTextMessage(chatId, messageThreadId, fallbackMessage);
-        } catch (Exception e) {
-            log.error("Unexpected error sending photo to chat {} thread {}: {}",
-                    chatId, messageThreadId, e.getMessage());
-            throw e;
+        if (payload.getPhotoFallback() == null) {
+            return outboundMessageDispatcher.submit(chatId, payload.getRequest())
+                    .whenComplete((sent, e) -> {
+                        if (e != null) {
+                            log.error("Failed to send text message to chat {} thread {}: {}",
+                                    chatId, messageThreadId, e.getMessage());
+                        }
+                    });
         }
+
+        return outboundMessageDispatcher.submit(chatId, payload.getRequest(), payload.getPhotoFallback())
+                .whenComplete((sent, e) -> {
+                    if (e != null) {
+                        log.error("Failed to send photo message and text fallback to chat {} thread {}: {}",
+                                chatId, messageThreadId, e.getMessage());
+                    }
+                });
     }
-}
\ No newline at end of file
+}
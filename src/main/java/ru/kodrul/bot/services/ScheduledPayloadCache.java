@@ -0,0 +1,139 @@
+package ru.kodrul.bot.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendPhoto;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import ru.kodrul.bot.entity.ScheduledPost;
+import ru.kodrul.bot.pojo.GroupSnapshot;
+import ru.kodrul.bot.pojo.ScheduledPayload;
+import ru.kodrul.bot.utils.GroupFormatHelper;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш собранных запланированных постов по идентификатору расписания: блок упоминаний, текст,
+ * обрезка под лимиты Telegram и сам запрос строятся один раз, а при срабатывании запрос только ставится в очередь.
+ * <p>
+ * Пост пересобирается, если {@link GroupSnapshotCache} отдал другой снимок группы (изменился состав группы
+ * или username участника, в том числе на другом узле) или поменялись поля расписания. Поля сравниваются
+ * с расписанием, только что захваченным из базы, поэтому правки с других узлов тоже видны.
+ * Выключенные и удалённые расписания сбрасываются явно
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduledPayloadCache {
+
+    private static final int MAX_TEXT_LENGTH = 4000;
+    private static final int MAX_CAPTION_LENGTH = 1024;
+
+    private final GroupManagementService groupManagementService;
+
+    private final Map<Long, ScheduledPayload> payloads = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Возвращает готовый пост расписания или пустой результат, если группа не найдена или пуста
+     */
+    public Optional<ScheduledPayload> get(ScheduledPost schedule) {
+        Optional<GroupSnapshot> groupOpt = groupManagementService.getGroupSnapshot(
+                schedule.getChatId(), schedule.getGroupName());
+
+        if (groupOpt.isEmpty()) {
+            payloads.remove(schedule.getId());
+            log.warn("Group {} not found for chat {}", schedule.getGroupName(), schedule.getChatId());
+            return Optional.empty();
+        }
+
+        GroupSnapshot group = groupOpt.get();
+        ScheduledPayload cached = payloads.get(schedule.getId());
+        if (cached != null && cached.isRenderedFrom(schedule, group)) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+
+        if (group.getMembers().isEmpty()) {
+            payloads.remove(schedule.getId());
+            log.warn("Group {} is empty, skipping scheduled post", schedule.getGroupName());
+            return Optional.empty();
+        }
+
+        ScheduledPayload payload = render(schedule, group);
+        payloads.put(schedule.getId(), payload);
+        return Optional.of(payload);
+    }
+
+    public void evict(Long scheduleId) {
+        payloads.remove(scheduleId);
+    }
+
+    private ScheduledPayload render(ScheduledPost schedule, GroupSnapshot group) {
+        StringBuilder message = GroupFormatHelper.appendMentions(new StringBuilder(), group.getMembers());
+
+        if (schedule.getMessageText() != null && !schedule.getMessageText().isEmpty()) {
+            message.append("\n\n").append(schedule.getMessageText());
+        }
+
+        String finalMessage = message.toString();
+
+        if (finalMessage.length() > MAX_TEXT_LENGTH) {
+            finalMessage = finalMessage.substring(0, MAX_TEXT_LENGTH) + "...";
+            log.warn("Message truncated for schedule {}", schedule.getId());
+        }
+
+        Long chatId = schedule.getChatId();
+        Integer messageThreadId = schedule.getMessageThreadId();
+        String imageUrl = schedule.getImageUrl();
+
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return new ScheduledPayload(group, chatId, messageThreadId, schedule.getMessageText(), imageUrl,
+                    textMessage(chatId, messageThreadId, finalMessage), null);
+        }
+
+        String caption = finalMessage.length() > MAX_CAPTION_LENGTH
+                ? finalMessage.substring(0, MAX_CAPTION_LENGTH - 4) + "..."
+                : finalMessage;
+
+        SendPhoto sendPhoto = new SendPhoto();
+        sendPhoto.setChatId(chatId.toString());
+        sendPhoto.setPhoto(new InputFile(imageUrl));
+        sendPhoto.setCaption(caption);
+        if (messageThreadId != null) {
+            sendPhoto.setMessageThreadId(messageThreadId);
+        }
+
+        SendMessage fallback = textMessage(chatId, messageThreadId, caption + "\n\n🖼️ Изображение: " + imageUrl);
+        return new ScheduledPayload(group, chatId, messageThreadId, schedule.getMessageText(), imageUrl, sendPhoto, fallback);
+    }
+
+    private static SendMessage textMessage(Long chatId, Integer messageThreadId, String text) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
+        if (messageThreadId != null) {
+            message.setMessageThreadId(messageThreadId);
+        }
+        return message;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getSize() {
+        return payloads.size();
+    }
+}
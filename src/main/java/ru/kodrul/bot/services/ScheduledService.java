@@ -1,14 +1,24 @@
 package ru.kodrul.bot.services;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.kodrul.bot.entity.MisfirePolicy;
 import ru.kodrul.bot.entity.ScheduledPost;
 import ru.kodrul.bot.pojo.CronParseResult;
+import ru.kodrul.bot.pojo.ScheduledClaim;
+import ru.kodrul.bot.pojo.ScheduledFire;
 import ru.kodrul.bot.repository.ScheduledPostRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,8 +27,22 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class ScheduledService {
 
+    private static final int MARK_AS_SENT_BATCH_SIZE = 1000;
+
+    /**
+     * Срабатывание считается пропущенным, если его захватили позже чем через минуту после планового времени
+     */
+    private static final Duration MISFIRE_THRESHOLD = Duration.ofMinutes(1);
+
+    /**
+     * Сколько пропущенных срабатываний одного расписания отправляется при {@link MisfirePolicy#FIRE_ALL_MISSED}
+     */
+    private static final int MAX_CATCH_UP_FIRES = 24;
+
     private final ScheduledPostRepository scheduledPostRepository;
     private final CronService cronService;
+    private final ScheduledPayloadCache scheduledPayloadCache;
+    private final MeterRegistry meterRegistry;
 
     @Transactional
     public ScheduledPost createSchedule(
@@ -52,6 +76,7 @@ public class ScheduledService {
         schedule.setImageUrl(imageUrl);
         schedule.setCreatedBy(createdBy);
         schedule.setIsActive(true);
+        schedule.setNextFireAt(cronService.nextExecution(cronResult.getCronExpression(), LocalDateTime.now()));
 
         ScheduledPost saved = scheduledPostRepository.save(schedule);
         log.info("Created schedule: {} for chat {} thread {} with cron: {}",
@@ -60,36 +85,118 @@ public class ScheduledService {
     }
 
     /**
-     * Получаем все активные расписания
+     * Получаем активные расписания для конкретного чата
      */
-    public List<ScheduledPost> getActiveSchedules() {
-        return scheduledPostRepository.findByIsActiveTrue();
+    public List<ScheduledPost> getActiveSchedulesForChat(Long chatId) {
+        return scheduledPostRepository.findByChatIdAndIsActiveTrue(chatId);
+    }
+
+    public List<ScheduledPost> getActiveSchedulesForGroup(Long chatId, String groupName) {
+        return scheduledPostRepository.findByChatIdAndGroupNameAndIsActiveTrue(chatId, groupName);
     }
 
     /**
-     * Получаем активные расписания для конкретного чата
+     * Отмечает расписания отправленными одним UPDATE на каждые {@value #MARK_AS_SENT_BATCH_SIZE} идентификаторов
      */
-    public List<ScheduledPost> getActiveSchedulesForChat(Long chatId) {
-        return scheduledPostRepository.findByChatIdAndIsActiveTrue(chatId);
+    @Transactional
+    public void markAllAsSent(Collection<Long> scheduleIds, LocalDateTime sentAt) {
+        List<Long> ids = List.copyOf(scheduleIds);
+        for (int from = 0; from < ids.size(); from += MARK_AS_SENT_BATCH_SIZE) {
+            int to = Math.min(from + MARK_AS_SENT_BATCH_SIZE, ids.size());
+            scheduledPostRepository.updateLastSent(ids.subList(from, to), sentAt);
+        }
     }
 
     /**
-     * Проверяем, должно ли выполняться расписание в указанное время
+     * Захватывает для этого узла до {@code limit} наступивших расписаний: под блокировкой строк сдвигает
+     * next_fire_at на ближайший слот после {@code now}. После фиксации транзакции другие узлы эти срабатывания
+     * уже не увидят, поэтому каждый слот отправляется не более одного раза.
+     * <p>
+     * Гарантия намеренно "не более одного раза", а не "ровно один раз": у отправки в Telegram нет ключа
+     * идемпотентности, и повторный захват слота после падения узла мог бы продублировать пост, который уже
+     * ушёл в чат. Если узел упадёт между захватом и отправкой, этот слот будет потерян.
+     * Пропущенные срабатывания разворачиваются по политике расписания
      */
-    public boolean shouldExecute(ScheduledPost schedule, LocalDateTime dateTime) {
-        return cronService.shouldExecute(schedule.getCronExpression(), dateTime);
+    @Transactional
+    public ScheduledClaim claimDue(LocalDateTime now, int limit) {
+        List<ScheduledPost> due = scheduledPostRepository.lockDue(now, limit);
+        LocalDateTime missedBefore = now.minus(MISFIRE_THRESHOLD);
+        List<ScheduledFire> fires = new ArrayList<>(due.size());
+        for (ScheduledPost schedule : due) {
+            LocalDateTime slot = schedule.getNextFireAt();
+            LocalDateTime next = cronService.nextExecution(schedule.getCronExpression(), now);
+            if (next == null) {
+                log.warn("Schedule {} has no next execution for cron '{}'", schedule.getId(), schedule.getCronExpression());
+            }
+            schedule.setNextFireAt(next);
+
+            if (slot.isBefore(missedBefore)) {
+                addMissedFires(schedule, slot, next, now, fires);
+            } else {
+                fires.add(new ScheduledFire(schedule, slot, false));
+            }
+        }
+        return new ScheduledClaim(due.size(), fires);
     }
 
-    public List<ScheduledPost> getActiveSchedulesForGroup(Long chatId, String groupName) {
-        return scheduledPostRepository.findByChatIdAndGroupNameAndIsActiveTrue(chatId, groupName);
+    /**
+     * Добавляет пропущенные срабатывания по политике расписания. Слоты ищутся назад от {@code now}
+     * (последний слот до {@code next}) и не раньше {@code slot} и last_sent: берётся один слот,
+     * для {@link MisfirePolicy#FIRE_ALL_MISSED} - не больше {@value #MAX_CATCH_UP_FIRES}.
+     * Историю простоя целиком не перебираем - всё это выполняется под блокировкой строки
+     */
+    private void addMissedFires(ScheduledPost schedule, LocalDateTime slot, LocalDateTime next,
+                                LocalDateTime now, List<ScheduledFire> fires) {
+        MisfirePolicy policy = schedule.getMisfirePolicy() != null ? schedule.getMisfirePolicy() : MisfirePolicy.FIRE_ONCE_NOW;
+        LocalDateTime lastSent = schedule.getLastSent();
+        LocalDateTime notBefore = lastSent != null && !lastSent.isBefore(slot) ? lastSent.plusNanos(1) : slot;
+        int wanted = policy == MisfirePolicy.FIRE_ALL_MISSED ? MAX_CATCH_UP_FIRES : 1;
+
+        Deque<LocalDateTime> missed = new ArrayDeque<>(wanted);
+        LocalDateTime before = next != null ? next : now.plusNanos(1);
+        while (missed.size() < wanted) {
+            LocalDateTime previous = cronService.previousExecution(schedule.getCronExpression(), before, notBefore);
+            if (previous == null) {
+                break;
+            }
+            missed.addFirst(previous);
+            before = previous;
+        }
+        if (missed.isEmpty()) {
+            return;
+        }
+
+        Counter.builder("bot.scheduler.misfires")
+                .description("Расписания, захваченные с пропущенными срабатываниями, по политике")
+                .tag("policy", policy.name())
+                .register(meterRegistry)
+                .increment();
+        log.warn("Schedule {} missed fires since {}, latest {}, policy {}",
+                schedule.getId(), slot, missed.getLast(), policy);
+        if (policy != MisfirePolicy.SKIP) {
+            missed.forEach(missedSlot -> fires.add(new ScheduledFire(schedule, missedSlot, true)));
+        }
     }
 
+    /**
+     * Вычисляет next_fire_at для активных расписаний, у которых его ещё нет (созданных до появления столбца)
+     */
     @Transactional
-    public void markAsSent(Long scheduleId) {
+    public int initMissingFireTimes() {
+        List<ScheduledPost> schedules = scheduledPostRepository.findByIsActiveTrueAndNextFireAtIsNull();
+        LocalDateTime now = LocalDateTime.now();
+        schedules.forEach(schedule -> schedule.setNextFireAt(cronService.nextExecution(schedule.getCronExpression(), now)));
+        return schedules.size();
+    }
+
+    @Transactional
+    public void setMisfirePolicy(Long scheduleId, MisfirePolicy policy) {
         ScheduledPost schedule = scheduledPostRepository.findById(scheduleId)
                 .orElseThrow(() -> new IllegalArgumentException("Расписание не найдено"));
-        schedule.setLastSent(LocalDateTime.now());
+
+        schedule.setMisfirePolicy(policy);
         scheduledPostRepository.save(schedule);
+        log.info("Schedule {} misfire policy set to {}", scheduleId, policy);
     }
 
     @Transactional
@@ -98,7 +205,11 @@ public class ScheduledService {
                 .orElseThrow(() -> new IllegalArgumentException("Расписание не найдено"));
 
         schedule.setIsActive(isActive);
+        schedule.setNextFireAt(isActive ? cronService.nextExecution(schedule.getCronExpression(), LocalDateTime.now()) : null);
         scheduledPostRepository.save(schedule);
+        if (!isActive) {
+            scheduledPayloadCache.evict(scheduleId);
+        }
         log.info("Schedule {} {}", scheduleId, isActive ? "activated" : "deactivated");
     }
 
@@ -108,6 +219,7 @@ public class ScheduledService {
             throw new IllegalArgumentException("Расписание не найдено");
         }
         scheduledPostRepository.deleteById(scheduleId);
+        scheduledPayloadCache.evict(scheduleId);
         log.info("Deleted schedule: {}", scheduleId);
     }
 
@@ -2,20 +2,16 @@ package ru.kodrul.bot.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
-import org.telegram.abilitybots.api.bot.AbilityBot;
 import org.telegram.abilitybots.api.objects.MessageContext;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SendService {
 
-    @Lazy
-    private final AbilityBot abilityBot;
+    private final OutboundMessageDispatcher outboundMessageDispatcher;
 
     public void sendMessageToThread(MessageContext ctx, String text) {
         var chatId = ctx.chatId();
@@ -30,7 +26,8 @@ public class SendService {
     }
 
     /**
-     * Отправка сообщения в конкретный топик супергруппы
+     * Отправка сообщения в конкретный топик супергруппы. Сообщение ставится в общую очередь исходящих
+     * сообщений и отправляется с учётом лимитов Telegram
      *
      * @param chatId id чата
      * @param messageThreadId id топика
@@ -38,25 +35,37 @@ public class SendService {
      * @param parseMode режим парсинга ("Markdown", "MarkdownV2" или null (для обычного текста)
      */
     private void send(Long chatId, Integer messageThreadId, String text, String parseMode) {
-        try {
-            var message = new SendMessage();
-            message.setChatId(chatId.toString());
-            message.setText(text);
+        var message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
 
-            if (messageThreadId != null) {
-                message.setMessageThreadId(messageThreadId);
-            }
+        if (messageThreadId != null) {
+            message.setMessageThreadId(messageThreadId);
+        }
 
-            if (parseMode != null) {
-                message.setParseMode(parseMode);
+        if (parseMode != null) {
+            message.setParseMode(parseMode);
+        }
+
+        outboundMessageDispatcher.submit(chatId, message).whenComplete((sent, e) -> {
+            if (e == null) {
+                log.info("Message sent to chat: {}, thread: {}, parseMode: {}", chatId, messageThreadId, parseMode);
+            } else {
+                log.error("Failed to send message to chat {} thread {}: {}",
+                        chatId, messageThreadId, e.getMessage());
             }
+        });
+    }
 
-            abilityBot.execute(message);
-            log.info("Message sent to chat: {}, thread: {}, parseMode: {}", chatId, messageThreadId, parseMode);
-        } catch (TelegramApiException e) {
-            log.error("Failed to send message to chat {} thread {}: {}",
-                    chatId, messageThreadId, e.getMessage());
-        }
+    /**
+     * Отправляет сообщение в чат (без привязки к топику)
+     */
+    public void sendToChat(Long chatId, String message) {
+        send(chatId, null, message, null);
+    }
+
+    public void sendToChat(Long chatId, String message, String parseMode) {
+        send(chatId, null, message, parseMode);
     }
 
     /**
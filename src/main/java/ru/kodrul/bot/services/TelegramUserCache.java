@@ -0,0 +1,123 @@
+package ru.kodrul.bot.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.kodrul.bot.config.properties.UserSyncProperties;
+import ru.kodrul.bot.pojo.UserSnapshot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный по размеру кэш снимков пользователей по userId с дополнительным индексом по username.
+ * Вытесняются давно не использованные записи. Снимки пользователей, изменённых на других узлах, сбрасываются
+ * по сообщению {@link CacheInvalidationBus#USERS_CHANGED}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TelegramUserCache {
+
+    private final UserSyncProperties properties;
+    private final CacheInvalidationBus invalidationBus;
+
+    private final Map<Long, UserSnapshot> byUserId = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserSnapshot> eldest) {
+            if (size() > properties.getCacheMaxSize()) {
+                unindex(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<String, Long> userIdByUserName = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @PostConstruct
+    public void subscribe() {
+        invalidationBus.subscribe(CacheInvalidationBus.USERS_CHANGED, argument ->
+                Arrays.stream(argument.split(",")).map(Long::valueOf).forEach(this::evict));
+        invalidationBus.subscribeResync(this::clear);
+    }
+
+    public synchronized Optional<UserSnapshot> get(Long userId) {
+        return count(byUserId.get(userId));
+    }
+
+    public synchronized Optional<UserSnapshot> findByUserName(String userName) {
+        if (userName == null) {
+            return Optional.empty();
+        }
+        Long userId = userIdByUserName.get(userName);
+        return count(userId != null ? byUserId.get(userId) : null);
+    }
+
+    public synchronized void put(UserSnapshot snapshot) {
+        UserSnapshot previous = byUserId.put(snapshot.getUserId(), snapshot);
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (snapshot.getUserName() != null) {
+            Long displaced = userIdByUserName.put(snapshot.getUserName(), snapshot.getUserId());
+            if (displaced != null && !displaced.equals(snapshot.getUserId())) {
+                // username перешёл к другому пользователю: старый снимок больше не актуален
+                byUserId.remove(displaced);
+            }
+        }
+    }
+
+    public synchronized void evict(Long userId) {
+        UserSnapshot removed = byUserId.remove(userId);
+        if (removed != null) {
+            unindex(removed);
+        }
+    }
+
+    public synchronized void evictUserName(String userName) {
+        Long userId = userIdByUserName.get(userName);
+        if (userId != null) {
+            evict(userId);
+        }
+    }
+
+    public synchronized void clear() {
+        byUserId.clear();
+        userIdByUserName.clear();
+    }
+
+    private void unindex(UserSnapshot snapshot) {
+        if (snapshot.getUserName() != null) {
+            userIdByUserName.remove(snapshot.getUserName(), snapshot.getUserId());
+        }
+    }
+
+    private Optional<UserSnapshot> count(UserSnapshot snapshot) {
+        if (snapshot != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return Optional.ofNullable(snapshot);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized int getSize() {
+        return byUserId.size();
+    }
+}
@@ -0,0 +1,180 @@
+package ru.kodrul.bot.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.kodrul.bot.config.properties.UpdatePipelineProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Асинхронное выполнение обработчиков входящих обновлений.
+ * <p>
+ * Обновления раскладываются по потокам по хэшу chatId: обработчики одного чата выполняются строго по порядку,
+ * разные чаты - параллельно. Очереди ограничены; при переполнении вызывающий поток ждёт места в очереди,
+ * что притормаживает получение обновлений и не нарушает порядок обработки внутри чата.
+ * <p>
+ * Зависит от {@link UserWriteBehindBuffer}, чтобы при остановке буфер сбрасывался уже после обработки очередей
+ */
+@Slf4j
+@Service
+@DependsOn("userWriteBehindBuffer")
+@RequiredArgsConstructor
+public class UpdateDispatcher {
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final UpdatePipelineProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder blockedCount = new LongAdder();
+    private Timer queueWait;
+
+    @PostConstruct
+    public void start() {
+        queueWait = Timer.builder("bot.updates.queue.wait")
+                .description("Время ожидания обновления в очереди до начала обработки")
+                .register(meterRegistry);
+
+        int laneCount = Math.max(1, properties.getLanes());
+        int capacity = Math.max(1, properties.getQueueCapacity());
+        for (int i = 0; i < laneCount; i++) {
+            String threadName = "UpdateHandler-" + i;
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    this::awaitCapacity);
+            lanes.add(lane);
+        }
+        log.info("Update dispatcher started: {} lanes, queue capacity {}", laneCount, capacity);
+    }
+
+    /**
+     * Очередь потока переполнена: ждём освобождения места. Выполнить задачу в вызывающем потоке нельзя -
+     * она обогнала бы ещё не обработанные обновления того же чата
+     */
+    private void awaitCapacity(Runnable runnable, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            log.warn("Update dispatcher is shut down, update dropped");
+            return;
+        }
+        blockedCount.increment();
+        try {
+            executor.getQueue().put(runnable);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for update queue capacity, update dropped");
+        }
+    }
+
+    /**
+     * Дожидаемся обработки уже принятых обновлений, чтобы не потерять их побочные эффекты
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        lanes.forEach(ThreadPoolExecutor::shutdown);
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Update handlers did not finish in {} s, {} tasks dropped",
+                        SHUTDOWN_TIMEOUT_SECONDS, lane.shutdownNow().size());
+            }
+        }
+    }
+
+    /**
+     * Ставит задачу в очередь чата, к которому относится обновление
+     */
+    public void submit(Update update, Runnable task) {
+        long enqueuedAtNanos = System.nanoTime();
+        submittedCount.increment();
+        laneFor(update).execute(() -> {
+            queueWait.record(System.nanoTime() - enqueuedAtNanos, TimeUnit.NANOSECONDS);
+            try {
+                task.run();
+            } catch (Exception e) {
+                failedCount.increment();
+                log.error("Error while handling update {}", update.getUpdateId(), e);
+            } finally {
+                completedCount.increment();
+            }
+        });
+    }
+
+    private ThreadPoolExecutor laneFor(Update update) {
+        Long chatId = chatIdOf(update);
+        long key = chatId != null ? chatId : update.getUpdateId();
+        return lanes.get(Math.floorMod(Long.hashCode(key), lanes.size()));
+    }
+
+    private Long chatIdOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasEditedMessage()) {
+            return update.getEditedMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        if (update.hasMyChatMember()) {
+            return update.getMyChatMember().getChat().getId();
+        }
+        if (update.hasChatMember()) {
+            return update.getChatMember().getChat().getId();
+        }
+        return null;
+    }
+
+    /**
+     * Количество обновлений, ожидающих обработки во всех очередях
+     */
+    public int getQueueDepth() {
+        return lanes.stream().mapToInt(lane -> lane.getQueue().size()).sum();
+    }
+
+    /**
+     * Глубина очереди каждого потока (для поиска «горячих» чатов)
+     */
+    public List<Integer> getLaneDepths() {
+        return lanes.stream().map(lane -> lane.getQueue().size()).toList();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Сколько раз очередь была переполнена и поток получения обновлений ждал места в ней
+     */
+    public long getBlockedCount() {
+        return blockedCount.sum();
+    }
+}
@@ -6,23 +6,44 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.telegram.telegrambots.meta.api.objects.User;
+import ru.kodrul.bot.config.properties.UserSyncProperties;
 import ru.kodrul.bot.entity.TelegramUser;
+import ru.kodrul.bot.pojo.UserSnapshot;
 import ru.kodrul.bot.repository.TelegramUserRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserSyncService {
 
+    /**
+     * Ночные задачи запускаются cron-ом на каждом узле, выполняет их тот, кто первым взял блокировку.
+     * Срок блокировки заведомо больше разброса запуска между узлами и меньше интервала между запусками
+     */
+    private static final Duration NIGHTLY_JOB_LOCK = Duration.ofHours(1);
+
     private final TelegramUserRepository userRepository;
+    private final UserWriteBehindBuffer userWriteBehindBuffer;
+    private final TelegramUserCache userCache;
+    private final UserSyncProperties properties;
+    private final GroupSnapshotCache groupSnapshotCache;
+    private final ClusterLockService clusterLockService;
+
+    private final LongAdder skippedWrites = new LongAdder();
 
     /**
-     * Обновляем данные, если они изменились
+     * Обновляем данные, если они изменились. Если профиль не менялся, а lastSeen записан недавно - не сохраняем
      * */
     @Transactional
     public TelegramUser syncUser(User telegramUser) {
@@ -30,20 +51,19 @@ public class UserSyncService {
         TelegramUser user;
         if (existingUser.isPresent()) {
             user = existingUser.get();
-            if (!equalsSafe(user.getUserName(), telegramUser.getUserName())) {
-                user.setUserName(telegramUser.getUserName());
-            }
-            if (!equalsSafe(user.getFirstName(), telegramUser.getFirstName())) {
-                user.setFirstName(telegramUser.getFirstName());
+            LocalDateTime now = LocalDateTime.now();
+            if (isUpToDate(UserSnapshot.of(user), telegramUser, now)) {
+                skippedWrites.increment();
+                userCache.put(UserSnapshot.of(user));
+                return user;
             }
-            if (!equalsSafe(user.getLastName(), telegramUser.getLastName())) {
-                user.setLastName(telegramUser.getLastName());
-            }
-            if (user.getIsBot() == null || !user.getIsBot().equals(telegramUser.getIsBot())) {
-                user.setIsBot(telegramUser.getIsBot());
-            }
-            user.setLastSeen(LocalDateTime.now());
+            user.setUserName(telegramUser.getUserName());
+            user.setFirstName(telegramUser.getFirstName());
+            user.setLastName(telegramUser.getLastName());
+            user.setIsBot(telegramUser.getIsBot());
+            user.setLastSeen(now);
             user = userRepository.save(user);
+            groupSnapshotCache.evictUsers(List.of(user.getUserId()));
         } else {
             user = new TelegramUser();
             user.setUserId(telegramUser.getId());
@@ -55,9 +75,33 @@ public class UserSyncService {
             log.info("Created new user: {}", user);
         }
 
+        userCache.put(UserSnapshot.of(user));
         return user;
     }
 
+    /**
+     * Отложенная синхронизация: данные пользователя и lastSeen попадут в базу при ближайшем сбросе буфера.
+     * Запись пропускается, если профиль не изменился, а lastSeen записывался недавно
+     */
+    public void recordActivity(User telegramUser) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<UserSnapshot> cached = userCache.get(telegramUser.getId());
+        if (cached.isPresent() && isUpToDate(cached.get(), telegramUser, now)) {
+            skippedWrites.increment();
+            return;
+        }
+
+        boolean profileChanged = cached.isEmpty() || !cached.get().hasSameProfile(telegramUser);
+        userWriteBehindBuffer.record(telegramUser, profileChanged);
+        userCache.put(UserSnapshot.of(telegramUser, now));
+    }
+
+    private boolean isUpToDate(UserSnapshot snapshot, User telegramUser, LocalDateTime now) {
+        return snapshot.hasSameProfile(telegramUser)
+                && snapshot.getLastSeenWrittenAt() != null
+                && snapshot.getLastSeenWrittenAt().isAfter(now.minusMinutes(properties.getLastSeenWriteIntervalMinutes()));
+    }
+
     @Transactional
     public TelegramUser syncUserWithChat(Long userId, Long chatId) {
         // TODO вызов Telegram API? Пока возвращаем существующего пользователя или создаем нового
@@ -66,7 +110,9 @@ public class UserSyncService {
             newUser.setUserId(userId);
             newUser.setFirstName("Unknown");
             newUser.setLastName("User");
-            return userRepository.save(newUser);
+            TelegramUser savedUser = userRepository.save(newUser);
+            userCache.put(UserSnapshot.of(savedUser));
+            return savedUser;
         });
     }
 
@@ -77,6 +123,8 @@ public class UserSyncService {
     public TelegramUser syncUserByUsername(String username, Long mentionedByUserId, Long chatId) {
         String cleanUsername = username.startsWith("@") ? username.substring(1) : username;
 
+        // Пользователь мог уже писать в чат, но ещё не попасть в базу из буфера
+        userWriteBehindBuffer.flush();
         Optional<TelegramUser> existingUser = userRepository.findByUserName(cleanUsername);
 
         if (existingUser.isPresent()) {
@@ -97,6 +145,7 @@ public class UserSyncService {
         newUser.setLastSeen(java.time.LocalDateTime.now());
 
         TelegramUser savedUser = userRepository.save(newUser);
+        userCache.put(UserSnapshot.of(savedUser));
 
         log.info("Created new user from username mention: @{} by user {} in chat {}",
                 cleanUsername, mentionedByUserId, chatId);
@@ -114,9 +163,14 @@ public class UserSyncService {
         if (userOpt.isPresent()) {
             TelegramUser user = userOpt.get();
             if (isTemporaryUserId(user.getUserId())) {
+                Long temporaryUserId = user.getUserId();
                 log.info("Updating temporary user @{} with real ID: {}", username, realUserId);
                 user.setUserId(realUserId);
-                return userRepository.save(user);
+                TelegramUser savedUser = userRepository.save(user);
+                userCache.evictUserName(username);
+                groupSnapshotCache.evictUsers(List.of(temporaryUserId));
+                userCache.put(UserSnapshot.of(savedUser));
+                return savedUser;
             }
         }
 
@@ -137,10 +191,54 @@ public class UserSyncService {
     }
 
 
+    /**
+     * Находит пользователей по userId и username одним запросом. Отсутствующие userId создаются пакетно,
+     * как в {@link #syncUserWithChat(Long, Long)}
+     */
+    @Transactional
+    public List<TelegramUser> resolveUsers(Collection<Long> userIds, Collection<String> usernames) {
+        userWriteBehindBuffer.flush();
+
+        List<TelegramUser> users = new ArrayList<>(userRepository.findByUserIdInOrUserNameIn(userIds, usernames));
+        Set<Long> found = users.stream().map(TelegramUser::getUserId).collect(Collectors.toSet());
+
+        List<TelegramUser> created = userIds.stream()
+                .filter(userId -> !found.contains(userId))
+                .distinct()
+                .map(userId -> {
+                    TelegramUser newUser = new TelegramUser();
+                    newUser.setUserId(userId);
+                    newUser.setFirstName("Unknown");
+                    newUser.setLastName("User");
+                    return newUser;
+                })
+                .toList();
+        if (!created.isEmpty()) {
+            users.addAll(userRepository.saveAll(created));
+        }
+        return users;
+    }
+
     public Optional<TelegramUser> findUserByUsername(String username) {
         return userRepository.findByUserName(username);
     }
 
+    /**
+     * Поиск userId по username: сначала в кэше, затем в базе
+     */
+    public Optional<Long> findUserIdByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        Optional<UserSnapshot> cached = userCache.findByUserName(username);
+        if (cached.isPresent()) {
+            return cached.map(UserSnapshot::getUserId);
+        }
+        Optional<TelegramUser> persisted = userRepository.findByUserName(username);
+        persisted.ifPresent(user -> userCache.put(UserSnapshot.of(user)));
+        return persisted.map(TelegramUser::getUserId);
+    }
+
     public Optional<TelegramUser> findUserById(Long userId) {
         return userRepository.findByUserId(userId);
     }
@@ -148,6 +246,9 @@ public class UserSyncService {
     @Scheduled(cron = "0 0 1 * * ?")
     @Transactional
     public void scheduledUserSync() {
+        if (!clusterLockService.tryLock("scheduled-user-sync", NIGHTLY_JOB_LOCK)) {
+            return;
+        }
         log.info("Starting scheduled user synchronization");
 
         try {
@@ -169,10 +270,15 @@ public class UserSyncService {
     @Scheduled(cron = "0 0 3 * * ?")
     @Transactional
     public void cleanupTemporaryUsers() {
+        if (!clusterLockService.tryLock("cleanup-temporary-users", NIGHTLY_JOB_LOCK)) {
+            return;
+        }
         LocalDateTime oneMonthAgo = LocalDateTime.now().minusMonths(1);
         List<TelegramUser> users = userRepository.findOldNegativeUsersWithMembers(oneMonthAgo);
         log.info("Cleaned up temporary user: {}", users);
         userRepository.deleteAll(users);
+        users.forEach(user -> userCache.evict(user.getUserId()));
+        groupSnapshotCache.evictUsers(users.stream().map(TelegramUser::getUserId).toList());
     }
 
     /**
@@ -194,9 +300,10 @@ public class UserSyncService {
         }
     }
 
-    private boolean equalsSafe(String str1, String str2) {
-        if (str1 == null && str2 == null) return true;
-        if (str1 == null || str2 == null) return false;
-        return str1.equals(str2);
+    /**
+     * Сколько обращений не дошли до базы, потому что данные пользователя не изменились
+     */
+    public long getSkippedWrites() {
+        return skippedWrites.sum();
     }
 }
\ No newline at end of file
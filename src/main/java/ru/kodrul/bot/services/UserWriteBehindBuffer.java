@@ -0,0 +1,142 @@
+package ru.kodrul.bot.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.User;
+import ru.kodrul.bot.config.properties.UserSyncProperties;
+import ru.kodrul.bot.pojo.UserUpsert;
+import ru.kodrul.bot.repository.TelegramUserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отложенная запись активности пользователей.
+ * <p>
+ * Изменения копятся в памяти и схлопываются по userId, затем записываются одним пакетным upsert
+ * по расписанию или при достижении порога. При ошибке записи изменения возвращаются в буфер,
+ * при остановке приложения буфер сбрасывается
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserWriteBehindBuffer {
+
+    private final TelegramUserRepository userRepository;
+    private final UserSyncProperties properties;
+    private final GroupSnapshotCache groupSnapshotCache;
+
+    private final Map<Long, UserUpsert> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder recordedCount = new LongAdder();
+    private final LongAdder flushedCount = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder flushFailedCount = new LongAdder();
+
+    /**
+     * Запоминает актуальные данные пользователя и время его активности
+     *
+     * @param profileChanged изменились ли данные профиля: после записи такие пользователи сбрасываются из кэша групп
+     */
+    public void record(User user, boolean profileChanged) {
+        LocalDateTime now = LocalDateTime.now();
+        UserUpsert upsert = new UserUpsert(user.getId(), user.getUserName(), user.getFirstName(), user.getLastName(),
+                user.getIsBot(), now, now, profileChanged);
+        pending.merge(user.getId(), upsert, UserUpsert::merge);
+        recordedCount.increment();
+
+        if (pending.size() >= properties.getFlushThreshold() && flushLock.tryLock()) {
+            try {
+                doFlush();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bot.user-sync.flush-interval-millis:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает буфер, если в нём есть незаписанные изменения пользователя. Нужно перед операциями,
+     * которым требуется строка пользователя в базе
+     */
+    public void ensureWritten(Long userId) {
+        if (pending.containsKey(userId)) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            log.error("{} user updates were not written on shutdown", pending.size());
+        }
+    }
+
+    private void doFlush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<UserUpsert> batch = new ArrayList<>(pending.size());
+        for (Long userId : pending.keySet()) {
+            UserUpsert upsert = pending.remove(userId);
+            if (upsert != null) {
+                batch.add(upsert);
+            }
+        }
+
+        try {
+            userRepository.upsertAll(batch);
+            groupSnapshotCache.evictUsers(batch.stream()
+                    .filter(UserUpsert::isProfileChanged)
+                    .map(UserUpsert::getUserId)
+                    .toList());
+            flushedCount.add(batch.size());
+            flushCount.increment();
+            log.debug("Flushed {} user updates", batch.size());
+        } catch (Exception e) {
+            flushFailedCount.increment();
+            batch.forEach(upsert -> pending.merge(upsert.getUserId(), upsert, UserUpsert::merge));
+            log.error("Failed to flush {} user updates, will retry: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getRecordedCount() {
+        return recordedCount.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getFlushFailedCount() {
+        return flushFailedCount.sum();
+    }
+}
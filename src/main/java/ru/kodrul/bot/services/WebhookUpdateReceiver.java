@@ -0,0 +1,137 @@
+package ru.kodrul.bot.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.telegram.abilitybots.api.bot.AbilityBot;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import ru.kodrul.bot.config.properties.WebhookProperties;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Приём обновлений в режиме webhook.
+ * <p>
+ * HTTP-обработчик только кладёт обновление в ограниченную очередь и сразу отвечает Telegram.
+ * Отдельный поток передаёт обновления боту в порядке поступления, как это делает long polling.
+ * Обработка начинается после {@link #register()}, до этого обновления копятся в очереди
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "bot.webhook", name = "enabled", havingValue = "true")
+public class WebhookUpdateReceiver {
+
+    /**
+     * Допустимый формат секрета по документации setWebhook
+     */
+    private static final Pattern SECRET_TOKEN_FORMAT = Pattern.compile("[A-Za-z0-9_-]{1,256}");
+
+    @Lazy
+    private final AbilityBot abilityBot;
+    private final WebhookProperties properties;
+
+    private BlockingQueue<Update> queue;
+    private final CountDownLatch registered = new CountDownLatch(1);
+    private Thread worker;
+
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder processedCount = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        // Без секрета публичный эндпоинт принимал бы поддельные обновления, в том числе админские команды
+        String secretToken = properties.getSecretToken();
+        if (secretToken == null || !SECRET_TOKEN_FORMAT.matcher(secretToken).matches()) {
+            throw new IllegalStateException(
+                    "bot.webhook.secret-token must be set (1-256 characters A-Z, a-z, 0-9, _ or -) when webhook is enabled");
+        }
+
+        queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        worker = new Thread(this::runWorker, "WebhookUpdates");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Инициализирует способности бота и регистрирует webhook в Telegram
+     */
+    public void register() throws TelegramApiException {
+        abilityBot.onRegister();
+        registered.countDown();
+
+        SetWebhook setWebhook = SetWebhook.builder()
+                .url(properties.getUrl() + properties.getPath())
+                .secretToken(properties.getSecretToken())
+                .maxConnections(properties.getMaxConnections())
+                .build();
+        abilityBot.execute(setWebhook);
+        log.info("Webhook registered: {}{}", properties.getUrl(), properties.getPath());
+    }
+
+    /**
+     * @return false, если очередь переполнена и Telegram должен повторить доставку позже
+     */
+    public boolean offer(Update update) {
+        if (queue.offer(update)) {
+            acceptedCount.increment();
+            return true;
+        }
+        rejectedCount.increment();
+        log.warn("Webhook queue is full ({} updates), rejecting update {}", queue.size(), update.getUpdateId());
+        return false;
+    }
+
+    private void runWorker() {
+        try {
+            registered.await();
+            while (!Thread.currentThread().isInterrupted()) {
+                Update update = queue.take();
+                try {
+                    abilityBot.onUpdateReceived(update);
+                } catch (Exception e) {
+                    log.error("Error while processing webhook update {}", update.getUpdateId(), e);
+                } finally {
+                    processedCount.increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Webhook worker stopped");
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.sum();
+    }
+}
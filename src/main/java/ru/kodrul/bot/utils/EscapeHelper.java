@@ -2,29 +2,74 @@ package ru.kodrul.bot.utils;
 
 public class EscapeHelper {
 
+    private static final String MARKDOWN_V2_RESERVED = "_*[]()~`>#+-=|{}.!";
+
+    /**
+     * Таблица зарезервированных символов MarkdownV2 (все они ASCII)
+     */
+    private static final boolean[] MARKDOWN_V2_ESCAPE = new boolean[128];
+
+    static {
+        for (int i = 0; i < MARKDOWN_V2_RESERVED.length(); i++) {
+            MARKDOWN_V2_ESCAPE[MARKDOWN_V2_RESERVED.charAt(i)] = true;
+        }
+    }
+
     /**
-     * Экранирование специальных символов для MarkdownV2
+     * Экранирование специальных символов для MarkdownV2. Если экранировать нечего, возвращается исходная строка
      */
     public static String escapeMarkdownV2(String text) {
         if (text == null) return "";
 
-        return text.replace("_", "\\_")
-                .replace("*", "\\*")
-                .replace("[", "\\[")
-                .replace("]", "\\]")
-                .replace("(", "\\(")
-                .replace(")", "\\)")
-                .replace("~", "\\~")
-                .replace("`", "\\`")
-                .replace(">", "\\>")
-                .replace("#", "\\#")
-                .replace("+", "\\+")
-                .replace("-", "\\-")
-                .replace("=", "\\=")
-                .replace("|", "\\|")
-                .replace("{", "\\{")
-                .replace("}", "\\}")
-                .replace(".", "\\.")
-                .replace("!", "\\!");
+        int first = firstReserved(text);
+        if (first < 0) {
+            return text;
+        }
+
+        StringBuilder builder = new StringBuilder(text.length() + 16);
+        builder.append(text, 0, first);
+        appendEscaped(builder, text, first);
+        return builder.toString();
+    }
+
+    /**
+     * Дописывает экранированный текст в переданный StringBuilder без промежуточных строк
+     */
+    public static StringBuilder escapeMarkdownV2(StringBuilder builder, String text) {
+        if (text == null) return builder;
+
+        int first = firstReserved(text);
+        if (first < 0) {
+            return builder.append(text);
+        }
+
+        builder.append(text, 0, first);
+        appendEscaped(builder, text, first);
+        return builder;
+    }
+
+    private static int firstReserved(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (isReserved(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void appendEscaped(StringBuilder builder, String text, int from) {
+        int start = from;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isReserved(c)) {
+                builder.append(text, start, i).append('\\').append(c);
+                start = i + 1;
+            }
+        }
+        builder.append(text, start, text.length());
+    }
+
+    private static boolean isReserved(char c) {
+        return c < 128 && MARKDOWN_V2_ESCAPE[c];
     }
 }
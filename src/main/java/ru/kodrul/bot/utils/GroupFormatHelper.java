@@ -0,0 +1,74 @@
+package ru.kodrul.bot.utils;
+
+import ru.kodrul.bot.pojo.GroupSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Форматирование ответов по группам. Не обращается ни к базе, ни к Telegram
+ */
+public class GroupFormatHelper {
+
+    /**
+     * Карточка группы для /listgroups, /creategroup и /groupinfo
+     */
+    public static String formatGroupInfo(Long id, String name, String description, long memberCount) {
+        return String.format(
+                "📋 Группа: *%s*%s\n👥 Участников: %d\n🆔 ID: %d",
+                name,
+                description != null ? "\n📝 Описание: " + description : "",
+                memberCount,
+                id
+        );
+    }
+
+    /**
+     * Дописывает упоминания участников с username через пробел. Участники без username пропускаются
+     */
+    public static StringBuilder appendMentions(StringBuilder builder, List<GroupSnapshot.Member> members) {
+        for (GroupSnapshot.Member member : members) {
+            String username = member.getUserName();
+            if (username != null && !username.isEmpty()) {
+                builder.append("@").append(username).append(" ");
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Случайно распределяет участников по командам и формирует текст ответа в MarkdownV2
+     */
+    public static String formatTeams(String groupName, List<GroupSnapshot.Member> members, int teamCount) {
+        // Перемешиваем участников
+        List<GroupSnapshot.Member> shuffledMembers = new ArrayList<>(members);
+        Collections.shuffle(shuffledMembers);
+
+        // Создаем команды
+        List<List<GroupSnapshot.Member>> teams = new ArrayList<>();
+        for (int i = 0; i < teamCount; i++) {
+            teams.add(new ArrayList<>());
+        }
+
+        // Распределяем участников по командам
+        for (int i = 0; i < shuffledMembers.size(); i++) {
+            int teamIndex = i % teamCount;
+            teams.get(teamIndex).add(shuffledMembers.get(i));
+        }
+
+        // Формируем результат
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("🏆 Распределение группы '%s' на %d команд:\n\n", groupName, teamCount));
+
+        for (int i = 0; i < teams.size(); i++) {
+            result.append(String.format("*Команда %d* (%d участников):\n", i + 1, teams.get(i).size()));
+
+            for (GroupSnapshot.Member member : teams.get(i)) {
+                EscapeHelper.escapeMarkdownV2(result.append("• "), member.getDisplayName()).append("\n");
+            }
+            result.append("\n");
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package ru.kodrul.bot.utils;
+
+/**
+ * Простой token bucket. Не потокобезопасен: синхронизацию обеспечивает вызывающий код
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param capacity максимальное количество токенов (размер допустимого всплеска)
+     * @param refillPerSecond скорость пополнения, токенов в секунду
+     * @param nowNanos текущее время в наносекундах ({@link System#nanoTime()})
+     */
+    public TokenBucket(double capacity, double refillPerSecond, long nowNanos) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Возвращает, сколько наносекунд нужно подождать до появления токена (0 - токен доступен сейчас)
+     */
+    public long nanosUntilAvailable(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / refillPerNano);
+    }
+
+    /**
+     * Забирает один токен. Перед вызовом нужно убедиться, что токен доступен
+     */
+    public void consume(long nowNanos) {
+        refill(nowNanos);
+        tokens -= 1;
+    }
+
+    /**
+     * Опустошает ведро и откладывает его пополнение до указанного момента
+     */
+    public void drainUntil(long untilNanos) {
+        tokens = 0;
+        if (untilNanos - lastRefillNanos > 0) {
+            lastRefillNanos = untilNanos;
+        }
+    }
+
+    public boolean isFull(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= capacity;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+-- Перед созданием уникальных индексов ux_chat_groups_chat_id_name и ux_group_members_group_id_user_id
+-- убираем дубликаты, оставляя запись с минимальным id
+
+-- Участники дублирующих групп переносятся в группу с минимальным id для той же пары (chat_id, name)
+UPDATE group_members gm
+SET group_id = d.keep_id
+FROM (SELECT id, MIN(id) OVER (PARTITION BY chat_id, name) AS keep_id FROM chat_groups) d
+WHERE gm.group_id = d.id
+  AND d.id <> d.keep_id;
+
+-- Повторные участники одной группы (в том числе появившиеся после переноса)
+DELETE FROM group_members gm
+USING (SELECT id, MIN(id) OVER (PARTITION BY group_id, user_id) AS keep_id FROM group_members) d
+WHERE gm.id = d.id
+  AND d.id <> d.keep_id;
+
+-- Дублирующие группы, участники которых уже перенесены
+DELETE FROM chat_groups cg
+USING (SELECT id, MIN(id) OVER (PARTITION BY chat_id, name) AS keep_id FROM chat_groups) d
+WHERE cg.id = d.id
+  AND d.id <> d.keep_id;
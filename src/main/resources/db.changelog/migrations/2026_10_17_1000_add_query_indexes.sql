@@ -0,0 +1,17 @@
+-- chat_groups: findByChatIdAndName, existsByChatIdAndName, findSummariesByChatId (префикс chat_id)
+CREATE UNIQUE INDEX IF NOT EXISTS ux_chat_groups_chat_id_name ON chat_groups (chat_id, name);
+
+-- telegram_users: findByUserName (user_id уже покрыт ограничением UNIQUE)
+CREATE INDEX IF NOT EXISTS ix_telegram_users_user_name ON telegram_users (user_name);
+
+-- group_members: existsByGroupIdAndUserId, findByGroupIdAndUserIdWithUser, deleteByGroupIdAndUserId, выборка участников группы
+CREATE UNIQUE INDEX IF NOT EXISTS ux_group_members_group_id_user_id ON group_members (group_id, user_id);
+
+-- scheduled_posts: активные расписания чата / группы / топика
+CREATE INDEX IF NOT EXISTS ix_scheduled_posts_active_chat_group_thread
+    ON scheduled_posts (chat_id, group_name, message_thread_id)
+    WHERE is_active;
+
+-- scheduled_posts: проверка дубликатов расписания (без фильтра по is_active)
+CREATE INDEX IF NOT EXISTS ix_scheduled_posts_chat_group_cron
+    ON scheduled_posts (chat_id, group_name, cron_expression);
@@ -0,0 +1,6 @@
+-- Hibernate выделяет идентификаторы блоками по 50 (pooled optimizer), шаг последовательностей должен совпадать с allocationSize.
+-- DEFAULT nextval(...) у столбцов остаётся: вставки в обход Hibernate берут значение, которое Hibernate уже не выдаст
+ALTER SEQUENCE telegram_users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE chat_groups_id_seq INCREMENT BY 50;
+ALTER SEQUENCE group_members_id_seq INCREMENT BY 50;
+ALTER SEQUENCE scheduled_posts_id_seq INCREMENT BY 50;
@@ -0,0 +1,2 @@
+-- group_members: обратный поиск групп пользователя (findByChatIdAndMemberUserId) и каскадное удаление пользователя
+CREATE INDEX IF NOT EXISTS ix_group_members_user_id_group_id ON group_members (user_id, group_id);
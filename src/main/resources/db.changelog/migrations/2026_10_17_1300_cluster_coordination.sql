@@ -0,0 +1,11 @@
+-- Слот (плановое время срабатывания), за который узел уже взял расписание. Узел отправляет пост,
+-- только если сам перевёл claimed_slot на текущий слот - второй узел с тем же слотом получает 0 обновлённых строк
+ALTER TABLE scheduled_posts ADD COLUMN IF NOT EXISTS claimed_slot TIMESTAMPTZ;
+
+-- Именованные блокировки для фоновых задач, которые должен выполнять только один узел
+CREATE TABLE IF NOT EXISTS cluster_locks (
+    name VARCHAR(64) PRIMARY KEY,
+    locked_until TIMESTAMPTZ NOT NULL,
+    locked_at TIMESTAMPTZ NOT NULL,
+    locked_by VARCHAR(255) NOT NULL
+);
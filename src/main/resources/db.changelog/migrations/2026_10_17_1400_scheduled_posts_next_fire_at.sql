@@ -0,0 +1,8 @@
+-- Время ближайшего срабатывания хранится в строке: планировщик выбирает только наступившие расписания по индексу,
+-- а узел захватывает срабатывание, сдвигая next_fire_at на следующий слот под блокировкой строки (FOR UPDATE SKIP LOCKED).
+-- Для существующих расписаний значение вычисляется приложением при старте
+ALTER TABLE scheduled_posts ADD COLUMN IF NOT EXISTS next_fire_at TIMESTAMPTZ;
+CREATE INDEX IF NOT EXISTS ix_scheduled_posts_next_fire_at ON scheduled_posts (next_fire_at) WHERE is_active;
+
+-- Захват слота через claimed_slot заменён сдвигом next_fire_at
+ALTER TABLE scheduled_posts DROP COLUMN IF EXISTS claimed_slot;
@@ -0,0 +1,2 @@
+-- Политика пропущенных срабатываний: FIRE_ONCE_NOW, SKIP или FIRE_ALL_MISSED (см. MisfirePolicy)
+ALTER TABLE scheduled_posts ADD COLUMN IF NOT EXISTS misfire_policy VARCHAR(20) NOT NULL DEFAULT 'FIRE_ONCE_NOW';
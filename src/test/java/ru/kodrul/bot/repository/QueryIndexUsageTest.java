@@ -0,0 +1,215 @@
+package ru.kodrul.bot.repository;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.kodrul.bot.PostgresJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Запросы репозиториев должны обслуживаться индексами из миграций. Проверяется SQL, который генерирует Hibernate
+ * (перехватывается {@link StatementInspector} при вызове метода репозитория), на данных порядка продового объёма:
+ * миллион участников групп, 200 тысяч пользователей, 50 тысяч групп и 100 тысяч расписаний, со статистикой после
+ * ANALYZE. План строится с теми же значениями параметров и не должен содержать последовательного сканирования
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(QueryIndexUsageTest.Config.class)
+class QueryIndexUsageTest extends PostgresJpaTest {
+
+    private static final long CHAT_ID = -8L;
+    private static final String GROUP_NAME = "group7";
+    private static final long GROUP_ID = 7L;
+    private static final long MEMBER_USER_ID = 1_000_121L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RecordingStatementInspector statementInspector;
+
+    @Autowired
+    private ChatGroupRepository chatGroupRepository;
+
+    @Autowired
+    private GroupMemberRepository groupMemberRepository;
+
+    @Autowired
+    private TelegramUserRepository telegramUserRepository;
+
+    @Autowired
+    private ScheduledPostRepository scheduledPostRepository;
+
+    @BeforeEach
+    void seedOnce() {
+        Long members = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM group_members", Long.class);
+        if (members != null && members > 0) {
+            return;
+        }
+        jdbcTemplate.execute("""
+                INSERT INTO telegram_users (id, user_id, user_name, first_name, is_bot, last_seen, first_seen)
+                SELECT g, 1000000 + g, 'user' || g, 'User ' || g, g % 50 = 0, now(), now()
+                FROM generate_series(1, 200000) g""");
+        jdbcTemplate.execute("""
+                INSERT INTO chat_groups (id, name, description, chat_id, chat_title, created_by, created_at)
+                SELECT g, 'group' || g, 'Группа ' || g, -1 - g % 5000, 'Чат ' || g % 5000, 1, now()
+                FROM generate_series(1, 50000) g""");
+        // 20 участников в каждой группе: участник q группы r - пользователь (r * 20 + q) % 200000 + 1
+        jdbcTemplate.execute("""
+                INSERT INTO group_members (id, group_id, user_id, added_at)
+                SELECT g, (g - 1) % 50000 + 1, (((g - 1) % 50000) * 20 + (g - 1) / 50000) % 200000 + 1, now()
+                FROM generate_series(1, 1000000) g""");
+        jdbcTemplate.execute("""
+                INSERT INTO scheduled_posts (id, chat_id, group_name, cron_expression, message_text, is_active,
+                                             next_fire_at, message_thread_id, misfire_policy, created_at, created_by)
+                SELECT g, -1 - g % 5000, 'group' || g % 50000, '0 0 9 * * *', 'Пост ' || g, g % 10 <> 0,
+                       now() + (g % 86400) * interval '1 second', NULLIF(g % 3, 0), 'FIRE_ONCE_NOW', now(), 1
+                FROM generate_series(1, 100000) g""");
+        // Последовательности сдвигаются за вставленные вручную id, чтобы сохранения через Hibernate не конфликтовали
+        jdbcTemplate.execute("SELECT setval('telegram_users_id_seq', 200000), setval('chat_groups_id_seq', 50000),"
+                + " setval('group_members_id_seq', 1000000), setval('scheduled_posts_id_seq', 100000)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void findByChatIdAndName() {
+        assertUsesIndex(() -> chatGroupRepository.findByChatIdAndName(CHAT_ID, GROUP_NAME),
+                List.of(CHAT_ID, GROUP_NAME), "ux_chat_groups_chat_id_name");
+    }
+
+    @Test
+    void findSummariesByChatId() {
+        assertUsesIndex(() -> chatGroupRepository.findSummariesByChatId(CHAT_ID),
+                List.of(CHAT_ID), "ux_chat_groups_chat_id_name");
+    }
+
+    @Test
+    void findByChatIdAndMemberUserId() {
+        assertUsesIndex(() -> chatGroupRepository.findByChatIdAndMemberUserId(CHAT_ID, MEMBER_USER_ID),
+                List.of(CHAT_ID, MEMBER_USER_ID), "ix_group_members_user_id_group_id", "ux_group_members_group_id_user_id");
+    }
+
+    @Test
+    void findByUserName() {
+        assertUsesIndex(() -> telegramUserRepository.findByUserName("user121"),
+                List.of("user121"), "ix_telegram_users_user_name");
+    }
+
+    @Test
+    void existsByGroupIdAndUserId() {
+        assertUsesIndex(() -> groupMemberRepository.existsByGroupIdAndUserId(GROUP_ID, MEMBER_USER_ID),
+                List.of(GROUP_ID, MEMBER_USER_ID), "ux_group_members_group_id_user_id", "ix_group_members_user_id_group_id");
+    }
+
+    @Test
+    void findMemberUserIds() {
+        assertUsesIndex(() -> groupMemberRepository.findMemberUserIds(GROUP_ID, List.of(MEMBER_USER_ID, 1L)),
+                List.of(GROUP_ID, MEMBER_USER_ID, 1L), "ux_group_members_group_id_user_id", "ix_group_members_user_id_group_id");
+    }
+
+    @Test
+    void findByChatIdAndIsActiveTrue() {
+        assertUsesIndex(() -> scheduledPostRepository.findByChatIdAndIsActiveTrue(CHAT_ID),
+                List.of(CHAT_ID), "ix_scheduled_posts_active_chat_group_thread", "ix_scheduled_posts_chat_group_cron");
+    }
+
+    @Test
+    void findByChatIdAndGroupNameAndIsActiveTrue() {
+        assertUsesIndex(() -> scheduledPostRepository.findByChatIdAndGroupNameAndIsActiveTrue(CHAT_ID, GROUP_NAME),
+                List.of(CHAT_ID, GROUP_NAME), "ix_scheduled_posts_active_chat_group_thread", "ix_scheduled_posts_chat_group_cron");
+    }
+
+    @Test
+    void existsByChatIdAndThreadIdAndGroupNameAndCronExpression() {
+        assertUsesIndex(() -> scheduledPostRepository.existsByChatIdAndThreadIdAndGroupNameAndCronExpression(
+                        CHAT_ID, 1, GROUP_NAME, "0 0 9 * * *"),
+                List.of(CHAT_ID, 1, 1, GROUP_NAME, "0 0 9 * * *"), "ix_scheduled_posts_chat_group_cron");
+    }
+
+    @Test
+    void findByIsActiveTrueAndNextFireAtIsNull() {
+        assertUsesIndex(() -> scheduledPostRepository.findByIsActiveTrueAndNextFireAtIsNull(),
+                List.of(), "ix_scheduled_posts_next_fire_at");
+    }
+
+    @Test
+    void lockDue() {
+        LocalDateTime now = LocalDateTime.now().plusHours(1);
+        assertUsesIndex(() -> scheduledPostRepository.lockDue(now, 500),
+                List.of(now, 500), "ix_scheduled_posts_next_fire_at");
+    }
+
+    /**
+     * Вызывает метод репозитория в пишущей транзакции (как сервисы), берёт первый выполненный им запрос
+     * и строит для него план с теми же параметрами. Если запрос могут обслужить несколько индексов
+     * (например, оба индекса group_members по паре группа-пользователь), план должен использовать один из них
+     *
+     * @param parameters значения параметров в порядке их появления в SQL
+     */
+    private void assertUsesIndex(Runnable repositoryCall, List<Object> parameters, String... anyOfIndexes) {
+        statementInspector.clear();
+        transactionTemplate.executeWithoutResult(status -> repositoryCall.run());
+        assertThat(statementInspector.getStatements()).isNotEmpty();
+
+        String sql = statementInspector.getStatements().get(0);
+        assertThat(sql.chars().filter(c -> c == '?').count()).as(sql).isEqualTo(parameters.size());
+
+        String plan = String.join("\n",
+                jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters.toArray()));
+        assertThat(plan).as(sql).doesNotContain("Seq Scan").containsAnyOf(anyOfIndexes);
+    }
+
+    /**
+     * Запоминает SQL, который Hibernate отправляет в базу
+     */
+    static class RecordingStatementInspector implements StatementInspector {
+
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        List<String> getStatements() {
+            return new ArrayList<>(statements);
+        }
+
+        void clear() {
+            statements.clear();
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        RecordingStatementInspector recordingStatementInspector() {
+            return new RecordingStatementInspector();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementInspectorCustomizer(RecordingStatementInspector inspector) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+        }
+    }
+}
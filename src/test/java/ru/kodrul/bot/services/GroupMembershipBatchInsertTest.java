@@ -0,0 +1,71 @@
+package ru.kodrul.bot.services;
+
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.kodrul.bot.PostgresJpaTest;
+import ru.kodrul.bot.entity.ChatGroup;
+import ru.kodrul.bot.entity.TelegramUser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Пакетное добавление участников: идентификаторы берутся блоками из последовательности,
+ * вставки уходят пачками по hibernate.jdbc.batch_size, а не отдельным запросом на каждого участника
+ */
+@Import(GroupManagementService.class)
+class GroupMembershipBatchInsertTest extends PostgresJpaTest {
+
+    private static final int MEMBERS = 200;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private GroupManagementService groupManagementService;
+
+    @MockitoBean
+    private UserWriteBehindBuffer userWriteBehindBuffer;
+
+    @MockitoBean
+    private GroupSnapshotCache groupSnapshotCache;
+
+    @Test
+    void addUsersToGroupBatchesInsertsAndSequenceCalls() {
+        ChatGroup group = createGroup();
+        List<TelegramUser> users = createUsers(MEMBERS);
+
+        Statistics statistics = startCounting();
+        List<TelegramUser> alreadyInGroup = groupManagementService.addUsersToGroup(group, users);
+        entityManager.flush();
+
+        int batches = MEMBERS / BATCH_SIZE;
+        assertThat(alreadyInGroup).isEmpty();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(MEMBERS);
+        // выборка существующих участников, по одному nextval на блок (плюс начальный) и по одной вставке на пачку
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(1 + (batches + 1) + batches);
+    }
+
+    private ChatGroup createGroup() {
+        ChatGroup group = new ChatGroup();
+        group.setName("team");
+        group.setChatId(-100L);
+        group.setCreatedBy(1L);
+        return entityManager.persist(group);
+    }
+
+    private List<TelegramUser> createUsers(int count) {
+        List<TelegramUser> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TelegramUser user = new TelegramUser();
+            user.setUserId(1000L + i);
+            user.setUserName("user" + i);
+            user.setFirstName("User " + i);
+            users.add(entityManager.persist(user));
+        }
+        return users;
+    }
+}
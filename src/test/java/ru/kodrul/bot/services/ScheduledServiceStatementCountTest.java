@@ -0,0 +1,93 @@
+package ru.kodrul.bot.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.kodrul.bot.PostgresJpaTest;
+import ru.kodrul.bot.entity.ScheduledPost;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Отметка отправленных за тик расписаний не должна зависеть от числа постов: один UPDATE на пачку
+ */
+@Import({ScheduledService.class, CronService.class, ScheduledServiceStatementCountTest.Config.class})
+class ScheduledServiceStatementCountTest extends PostgresJpaTest {
+
+    private static final int POSTS_PER_TICK = 1000;
+
+    @Autowired
+    private ScheduledService scheduledService;
+
+    @MockitoBean
+    private ScheduledPayloadCache scheduledPayloadCache;
+
+    @Test
+    void markAllAsSentIssuesOneStatementForThousandPosts() {
+        List<Long> ids = createSchedules(POSTS_PER_TICK);
+        LocalDateTime sentAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        Statistics statistics = startCounting();
+        scheduledService.markAllAsSent(ids, sentAt);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(countSentAt(sentAt)).isEqualTo(POSTS_PER_TICK);
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithTickSize() {
+        List<Long> ids = createSchedules(POSTS_PER_TICK);
+        LocalDateTime sentAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        Statistics statistics = startCounting();
+        scheduledService.markAllAsSent(ids.subList(0, 10), sentAt);
+        long smallTick = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        scheduledService.markAllAsSent(ids, sentAt);
+        long largeTick = statistics.getPrepareStatementCount();
+
+        assertThat(largeTick).isEqualTo(smallTick);
+    }
+
+    private List<Long> createSchedules(int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ScheduledPost schedule = new ScheduledPost();
+            schedule.setChatId(-100L);
+            schedule.setGroupName("group" + i);
+            schedule.setCronExpression("0 0 9 * * *");
+            schedule.setMessageText("Пост " + i);
+            schedule.setCreatedBy(1L);
+            ids.add(entityManager.persist(schedule).getId());
+        }
+        return ids;
+    }
+
+    private long countSentAt(LocalDateTime sentAt) {
+        return entityManager.getEntityManager()
+                .createQuery("SELECT COUNT(s) FROM ScheduledPost s WHERE s.lastSent = :sentAt", Long.class)
+                .setParameter("sentAt", sentAt)
+                .getSingleResult();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}